@@ -5,6 +5,8 @@ import github.javaguide.remoting.fault.FailFastTolerantStrategy;
 import github.javaguide.remoting.fault.FailOverTolerantStrategy;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author smile2coder
  */
@@ -23,5 +25,10 @@ public class HelloController {
         for (int i = 0; i < 10; i++) {
             System.out.println(helloService.hello(new Hello("111", "222")));
         }
+        //异步调用：多个请求并行发出，全部完成后再汇总
+        CompletableFuture<String> first = helloService.helloAsync(new Hello("111", "333"));
+        CompletableFuture<String> second = helloService.helloAsync(new Hello("111", "444"));
+        CompletableFuture.allOf(first, second).join();
+        System.out.println(first.join() + " / " + second.join());
     }
 }
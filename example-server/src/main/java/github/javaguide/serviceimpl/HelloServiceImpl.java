@@ -5,6 +5,8 @@ import github.javaguide.HelloService;
 import github.javaguide.annotation.RpcService;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author shuang.kou
  * @createTime 2020年05月10日 07:52:00
@@ -24,4 +26,9 @@ public class HelloServiceImpl implements HelloService {
         log.info("HelloServiceImpl返回: {}.", result);
         return result;
     }
+
+    @Override
+    public CompletableFuture<String> helloAsync(Hello hello) {
+        return CompletableFuture.supplyAsync(() -> hello(hello));
+    }
 }
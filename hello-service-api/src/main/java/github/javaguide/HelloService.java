@@ -1,5 +1,6 @@
 package github.javaguide;
 
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author shuang.kou
@@ -7,4 +8,11 @@ package github.javaguide;
  */
 public interface HelloService {
     String hello(Hello hello);
+
+    /**
+     * 异步版本：客户端代理不阻塞调用线程，服务端实现也可以异步完成
+     */
+    default CompletableFuture<String> helloAsync(Hello hello) {
+        return CompletableFuture.completedFuture(hello(hello));
+    }
 }
@@ -0,0 +1,31 @@
+package github.javaguide.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 客户端发送队列已满时如何处理新的请求
+ */
+@AllArgsConstructor
+@Getter
+public enum BackpressureEnum {
+
+    //阻塞调用方直到队列有空位，最多等待到请求超时
+    BLOCK("block"),
+    //立即以异常结束请求
+    REJECT("reject");
+
+    private final String name;
+
+    /**
+     * 未知或为空时返回BLOCK
+     */
+    public static BackpressureEnum of(String name) {
+        for (BackpressureEnum value : values()) {
+            if (value.name.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return BLOCK;
+    }
+}
@@ -0,0 +1,31 @@
+package github.javaguide.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Netty 分配 ByteBuf 的方式
+ */
+@AllArgsConstructor
+@Getter
+public enum BufferAllocatorEnum {
+
+    //池化分配，按arena/线程缓存复用内存，大消息下避免反复申请和清零
+    POOLED("pooled"),
+    //每次新申请，主要用于排查内存泄漏
+    UNPOOLED("unpooled");
+
+    private final String name;
+
+    /**
+     * 未知或为空时返回POOLED
+     */
+    public static BufferAllocatorEnum of(String name) {
+        for (BufferAllocatorEnum value : values()) {
+            if (value.name.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return POOLED;
+    }
+}
@@ -11,7 +11,10 @@ import lombok.Getter;
 @Getter
 public enum CompressTypeEnum {
 
-    GZIP((byte) 0x01, "gzip");
+    NONE((byte) 0x00, "none"),
+    GZIP((byte) 0x01, "gzip"),
+    LZ4((byte) 0x02, "lz4"),
+    ZSTD((byte) 0x03, "zstd");
 
     private final byte code;
     private final String name;
@@ -25,4 +28,16 @@ public enum CompressTypeEnum {
         return null;
     }
 
+    /**
+     * @return the enum with the given extension name, or null if unknown
+     */
+    public static CompressTypeEnum fromName(String name) {
+        for (CompressTypeEnum c : CompressTypeEnum.values()) {
+            if (c.getName().equalsIgnoreCase(name)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
 }
@@ -0,0 +1,31 @@
+package github.javaguide.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 客户端从到同一服务端的多个连接中选择发送连接的方式
+ */
+@AllArgsConstructor
+@Getter
+public enum ConnectionSelectEnum {
+
+    //依次轮询
+    ROUND_ROBIN("roundrobin"),
+    //选择等待响应的请求数最少的连接
+    LEAST_PENDING("leastpending");
+
+    private final String name;
+
+    /**
+     * 未知或为空时返回ROUND_ROBIN
+     */
+    public static ConnectionSelectEnum of(String name) {
+        for (ConnectionSelectEnum value : values()) {
+            if (value.name.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return ROUND_ROBIN;
+    }
+}
@@ -0,0 +1,23 @@
+package github.javaguide.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 服务端执行业务方法的方式
+ */
+@AllArgsConstructor
+@Getter
+public enum DispatcherTypeEnum {
+
+    //直接在IO线程(event loop)上执行，只适合不阻塞的快速方法
+    DIRECT("direct"),
+    //所有服务共享一个有界线程池
+    SHARED("shared"),
+    //每个服务一个独立的有界线程池，慢服务不影响其他服务
+    ISOLATED("isolated"),
+    //每个请求一个虚拟线程，需要JDK 21+，否则退回到shared
+    VIRTUAL("virtual");
+
+    private final String name;
+}
@@ -8,7 +8,73 @@ import lombok.Getter;
 public enum RpcConfigEnum {
 
     RPC_CONFIG_PATH("rpc.properties"),
-    ZK_ADDRESS("rpc.zookeeper.address");
+    ZK_ADDRESS("rpc.zookeeper.address"),
+    //消息体小于该字节数时不压缩
+    COMPRESS_THRESHOLD("rpc.compress.threshold"),
+    //gzip压缩级别：-1(默认)或0~9
+    GZIP_LEVEL("rpc.compress.gzip.level"),
+    //客户端默认的序列化方式：kyro、protostuff、hessian；rpc.serialization.<接口全限定名> 可为单个服务指定
+    SERIALIZATION("rpc.serialization"),
+    //默认的压缩方式：none、gzip、lz4、zstd；rpc.compress.<接口全限定名> 可为单个服务指定
+    COMPRESS("rpc.compress"),
+    //客户端代理的实现方式：jdk(默认，java.lang.reflect.Proxy)、stub(为每个接口生成字节码桩类)
+    PROXY("rpc.proxy"),
+    //服务端执行业务方法的方式：direct、shared(默认)、isolated、virtual；rpc.dispatcher.<接口全限定名> 可为单个服务指定
+    DISPATCHER("rpc.dispatcher"),
+    //shared/isolated 线程池的线程数，默认cpu核数*2
+    DISPATCHER_THREADS("rpc.dispatcher.threads"),
+    //shared/isolated 线程池的队列长度，队列满时拒绝请求
+    DISPATCHER_QUEUE_CAPACITY("rpc.dispatcher.queue.capacity"),
+    //是否使用虚拟线程(JDK 21+)：服务端默认以virtual方式执行业务方法，客户端的异步重试在虚拟线程上进行
+    VIRTUAL_THREADS("rpc.virtual.threads"),
+    //同一连接上响应的写出顺序：unordered(默认，按完成顺序，客户端按requestId关联)、ordered(按请求到达顺序)
+    RESPONSE_ORDER("rpc.server.response.order"),
+    //是否合并flush（客户端与服务端），默认false
+    FLUSH_CONSOLIDATION("rpc.flush.consolidation"),
+    //合并flush时，连续flush达到该次数后立即flush，默认256
+    FLUSH_CONSOLIDATION_MAX_FLUSHES("rpc.flush.consolidation.max.flushes"),
+    //客户端到每个服务端建立的连接数，默认1；rpc.client.connections.<接口全限定名> 可为单个服务指定
+    CLIENT_CONNECTIONS("rpc.client.connections"),
+    //多个连接时的选择方式：roundrobin(默认)、leastpending；rpc.client.connection.select.<接口全限定名> 可为单个服务指定
+    CLIENT_CONNECTION_SELECT("rpc.client.connection.select"),
+    //IO传输实现：nio(默认)、epoll、io_uring，不可用时依次退回到epoll、nio
+    TRANSPORT("rpc.transport"),
+    //epoll下服务端开启SO_REUSEPORT，由多个acceptor线程分别监听同一端口
+    SERVER_REUSE_PORT("rpc.server.reuseport"),
+    //开启SO_REUSEPORT时的acceptor线程数，默认cpu核数
+    SERVER_ACCEPTORS("rpc.server.acceptors"),
+    //epoll下开启TCP_QUICKACK，立即回复ACK而不是延迟确认
+    TCP_QUICKACK("rpc.tcp.quickack"),
+    //服务端额外监听的unix domain socket文件路径（需要epoll），注册中心随TCP地址一起发布，为空时不开启
+    SERVER_DOMAIN_SOCKET_PATH("rpc.server.uds.path"),
+    //服务端与客户端在同一主机且发布了unix domain socket时，客户端是否优先使用，默认true
+    CLIENT_PREFER_DOMAIN_SOCKET("rpc.client.uds.prefer"),
+    //客户端发送请求的方式：netty(默认)、socket、shm(同一主机上通过共享内存)
+    CLIENT_TRANSPORT("rpc.client.transport"),
+    //共享内存传输使用的文件，服务端配置后与netty监听同时开启，客户端使用shm时打开同一文件
+    SHM_PATH("rpc.shm.path"),
+    //共享内存中每个方向的环形缓冲区大小(字节)，默认4MB
+    SHM_CAPACITY("rpc.shm.capacity"),
+    //ByteBuf分配方式：pooled(默认)、unpooled
+    BUFFER_ALLOCATOR("rpc.buffer.allocator"),
+    //是否优先分配堆外内存，默认true
+    BUFFER_PREFER_DIRECT("rpc.buffer.prefer.direct"),
+    //每次读取使用的接收缓冲区会根据实际读到的字节数在min与max之间自动调整，默认64、1024、1MB
+    RECV_BUFFER_MIN("rpc.buffer.recv.min"),
+    RECV_BUFFER_INITIAL("rpc.buffer.recv.initial"),
+    RECV_BUFFER_MAX("rpc.buffer.recv.max"),
+    //连接上待写出的字节数超过high后channel变为不可写，降到low以下后恢复，默认1MB、4MB
+    WRITE_BUFFER_LOW_WATER_MARK("rpc.buffer.write.low"),
+    WRITE_BUFFER_HIGH_WATER_MARK("rpc.buffer.write.high"),
+    //socket发送/接收缓冲区大小(字节)，默认0表示不设置，由操作系统自动调整
+    SOCKET_SNDBUF("rpc.socket.sndbuf"),
+    SOCKET_RCVBUF("rpc.socket.rcvbuf"),
+    //客户端每个连接上等待写出的请求数上限，连接不可写（超过写缓冲区高水位）时请求在此排队，默认1024
+    CLIENT_SEND_QUEUE_CAPACITY("rpc.client.send.queue.capacity"),
+    //客户端发送队列已满时：block(默认，阻塞调用方直到有空位或超时)、reject(立即失败)
+    CLIENT_BACKPRESSURE("rpc.client.backpressure"),
+    //服务端业务线程池队列已满或连接不可写时，是否暂停读取该连接上的请求，默认true
+    SERVER_READ_SUSPEND("rpc.server.read.suspend");
 
     private final String propertyValue;
 
@@ -12,7 +12,8 @@ import lombok.Getter;
 public enum RpcRequestTransportEnum {
 
     NETTY("netty"),
-    SOCKET("socket");
+    SOCKET("socket"),
+    SHM("shm");
 
     private final String name;
 }
@@ -27,4 +27,16 @@ public enum SerializationTypeEnum {
         return null;
     }
 
+    /**
+     * @return the enum with the given extension name, or null if unknown
+     */
+    public static SerializationTypeEnum fromName(String name) {
+        for (SerializationTypeEnum c : SerializationTypeEnum.values()) {
+            if (c.getName().equalsIgnoreCase(name)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
 }
@@ -0,0 +1,33 @@
+package github.javaguide.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Netty 使用的 IO 传输实现
+ */
+@AllArgsConstructor
+@Getter
+public enum TransportTypeEnum {
+
+    //JDK Selector，所有平台可用
+    NIO("nio"),
+    //Linux 原生 epoll
+    EPOLL("epoll"),
+    //Linux io_uring，需要在classpath中加入 netty-incubator-transport-io_uring
+    IO_URING("io_uring");
+
+    private final String name;
+
+    /**
+     * 未知或为空时返回NIO
+     */
+    public static TransportTypeEnum of(String name) {
+        for (TransportTypeEnum value : values()) {
+            if (value.name.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return NIO;
+    }
+}
@@ -0,0 +1,55 @@
+package github.javaguide.utils.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程(JDK 21+)的工具类。
+ * 通过反射调用 Thread.ofVirtual() 等API，使源码仍可按Java 8编译，运行在JDK 21+上时即可使用虚拟线程
+ */
+public final class VirtualThreads {
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+    private static final Method BUILDER_NAME = OF_VIRTUAL == null ? null
+            : method(OF_VIRTUAL.getReturnType().getInterfaces()[0], "name", String.class, long.class);
+    private static final Method BUILDER_FACTORY = OF_VIRTUAL == null ? null
+            : method(OF_VIRTUAL.getReturnType().getInterfaces()[0], "factory");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = method(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return 当前JVM是否支持虚拟线程
+     */
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_FACTORY != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 创建为每个任务启动一个虚拟线程的Executor，线程名为 threadNamePrefix-0、threadNamePrefix-1...
+     *
+     * @throws UnsupportedOperationException if virtual threads are not available
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String threadNamePrefix) {
+        if (!isAvailable()) {
+            throw new UnsupportedOperationException("virtual threads require java 21+, current: " + System.getProperty("java.version"));
+        }
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), threadNamePrefix + "-", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("create virtual thread executor failed", e);
+        }
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -33,7 +33,7 @@ public final class ThreadPoolFactoryUtil {
 
     }
     public static void registerThreadPool(String threadNamePrefix,ExecutorService executorService) {
-        THREAD_POOLS.put("threadNamePrefix",executorService);
+        THREAD_POOLS.put(threadNamePrefix,executorService);
     }
     public static ExecutorService createCustomThreadPoolIfAbsent(String threadNamePrefix) {
         CustomThreadPoolConfig customThreadPoolConfig = new CustomThreadPoolConfig();
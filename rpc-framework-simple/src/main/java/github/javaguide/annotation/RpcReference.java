@@ -46,5 +46,11 @@ public @interface RpcReference {
     Class<? extends RetryWait> timeoutStrategy() default com.github.houbb.sisyphus.core.support.wait.FixedRetryWait.class;
     //容错策略，默认为失败自动恢复
     Class<? extends TolerantStrategy> faultClass() default FailOverTolerantStrategy.class;
+    //序列化方式（kyro、protostuff、hessian），为空时依次取rpc.serialization.<接口全限定名>、rpc.serialization
+    String serialization() default "";
+    //压缩方式（none、gzip、lz4、zstd），为空时依次取rpc.compress.<接口全限定名>、rpc.compress
+    String compress() default "";
+    //到每个服务端的连接数，不大于0时依次取rpc.client.connections.<接口全限定名>、rpc.client.connections
+    int connections() default 0;
 
 }
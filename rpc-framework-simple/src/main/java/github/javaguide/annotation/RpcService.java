@@ -32,4 +32,20 @@ public @interface RpcService {
      */
     String group() default "";
 
+    /**
+     * Serialization of responses, default value is empty string which means replying in the codec of the request
+     */
+    String serialization() default "";
+
+    /**
+     * Compression of responses, default value is empty string which means the global rpc.compress
+     */
+    String compress() default "";
+
+    /**
+     * Where the service methods run (direct, shared, isolated or virtual), default value is empty string
+     * which means the global rpc.dispatcher
+     */
+    String dispatcher() default "";
+
 }
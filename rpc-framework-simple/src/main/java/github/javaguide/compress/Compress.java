@@ -1,6 +1,8 @@
 package github.javaguide.compress;
 
 import github.javaguide.extension.SPI;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 
 /**
  * @author wangtao .
@@ -12,6 +14,25 @@ public interface Compress {
 
     byte[] compress(byte[] bytes);
 
+    /**
+     * 将 in 中全部可读字节压缩后写入 out，并推进 in 的 readerIndex。
+     * 默认实现经由字节数组完成，支持流式压缩的实现应覆盖该方法
+     */
+    default void compress(ByteBuf in, ByteBuf out) {
+        byte[] bytes = ByteBufUtil.getBytes(in);
+        in.skipBytes(bytes.length);
+        out.writeBytes(compress(bytes));
+    }
+
 
     byte[] decompress(byte[] bytes);
+
+    /**
+     * 将 in 中全部可读字节解压后写入 out，并推进 in 的 readerIndex
+     */
+    default void decompress(ByteBuf in, ByteBuf out) {
+        byte[] bytes = ByteBufUtil.getBytes(in);
+        in.skipBytes(bytes.length);
+        out.writeBytes(decompress(bytes));
+    }
 }
@@ -1,37 +1,105 @@
 package github.javaguide.compress.gzip;
 
 import github.javaguide.compress.Compress;
+import github.javaguide.config.RpcConfig;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
+ * gzip (RFC 1952) compression, wire compatible with {@link java.util.zip.GZIPOutputStream}/{@link java.util.zip.GZIPInputStream}.
+ * <p>
+ * 每个线程复用各自的 Deflater/Inflater（及其 native zlib 上下文）和暂存数组，header 与 trailer（CRC32、ISIZE）手工读写；
+ * 解压时以 trailer 中的原始长度作为预分配的参考（不超过最大帧长度），解压出的数据超过最大帧长度时拒绝。压缩级别通过 rpc.compress.gzip.level 配置
+ *
  * @author wangtao .
  * @createTime on 2020/10/3
  */
-
+@Slf4j
 public class GzipCompress implements Compress {
 
-
     private static final int BUFFER_SIZE = 1024 * 4;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int HEADER_LENGTH = 10;
+    private static final int TRAILER_LENGTH = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    /**
+     * 与 GZIPOutputStream 写出的 header 相同：magic、CM=deflate、无 flag、mtime=0、XFL=0、OS=0
+     */
+    private static final byte[] HEADER = {(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private static final int LEVEL = level();
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(LEVEL, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<CRC32> CRC = ThreadLocal.withInitial(CRC32::new);
+    private static final ThreadLocal<byte[]> INPUT_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private static final ThreadLocal<byte[]> OUTPUT_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private static int level() {
+        int level = RpcConfig.getInt(RpcConfigEnum.GZIP_LEVEL, Deflater.DEFAULT_COMPRESSION);
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            log.warn("invalid gzip level [{}], use default", level);
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+        return level;
+    }
 
     @Override
     public byte[] compress(byte[] bytes) {
         if (bytes == null) {
             throw new NullPointerException("bytes is null");
         }
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
-             GZIPOutputStream gzip = new GZIPOutputStream(out)) {
-            gzip.write(bytes);
-            gzip.flush();
-            gzip.finish();
-            return out.toByteArray();
-        } catch (IOException e) {
-            throw new RuntimeException("gzip compress error", e);
+        ByteBuf out = Unpooled.buffer(HEADER_LENGTH + bytes.length + (bytes.length >>> 10) + 64 + TRAILER_LENGTH);
+        compress(Unpooled.wrappedBuffer(bytes), out);
+        return ByteBufUtil.getBytes(out);
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Deflater deflater = DEFLATER.get();
+        CRC32 crc = CRC.get();
+        byte[] input = INPUT_BUFFER.get();
+        byte[] output = OUTPUT_BUFFER.get();
+        deflater.reset();
+        crc.reset();
+        int length = in.readableBytes();
+        out.writeBytes(HEADER);
+        while (in.isReadable()) {
+            int n;
+            if (in.hasArray()) {
+                // 堆内缓冲区直接把底层数组交给 Deflater
+                n = in.readableBytes();
+                int offset = in.arrayOffset() + in.readerIndex();
+                crc.update(in.array(), offset, n);
+                deflater.setInput(in.array(), offset, n);
+            } else {
+                n = Math.min(input.length, in.readableBytes());
+                in.getBytes(in.readerIndex(), input, 0, n);
+                crc.update(input, 0, n);
+                deflater.setInput(input, 0, n);
+            }
+            while (!deflater.needsInput()) {
+                out.writeBytes(output, 0, deflater.deflate(output));
+            }
+            in.skipBytes(n);
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            out.writeBytes(output, 0, deflater.deflate(output));
         }
+        out.writeIntLE((int) crc.getValue());
+        out.writeIntLE(length);
     }
 
     @Override
@@ -39,16 +107,90 @@ public class GzipCompress implements Compress {
         if (bytes == null) {
             throw new NullPointerException("bytes is null");
         }
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
-             GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int n;
-            while ((n = gunzip.read(buffer)) > -1) {
-                out.write(buffer, 0, n);
+        ByteBuf in = Unpooled.wrappedBuffer(bytes);
+        ByteBuf out = Unpooled.buffer(sizeHint(in));
+        decompress(in, out);
+        // 输出按 ISIZE 精确分配时直接返回底层数组
+        return out.arrayOffset() == 0 && out.array().length == out.writerIndex() ? out.array() : ByteBufUtil.getBytes(out);
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+        out.ensureWritable(sizeHint(in));
+        int end = in.writerIndex() - TRAILER_LENGTH;
+        skipHeader(in);
+        Inflater inflater = INFLATER.get();
+        CRC32 crc = CRC.get();
+        byte[] input = INPUT_BUFFER.get();
+        byte[] output = OUTPUT_BUFFER.get();
+        inflater.reset();
+        crc.reset();
+        int written = 0;
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    int n = Math.min(input.length, end - in.readerIndex());
+                    if (n <= 0) {
+                        throw new RuntimeException("gzip decompress error: unexpected end of stream");
+                    }
+                    in.readBytes(input, 0, n);
+                    inflater.setInput(input, 0, n);
+                }
+                int n = inflater.inflate(output);
+                written += n;
+                if (written > RpcConstants.MAX_FRAME_LENGTH) {
+                    throw new RuntimeException("gzip decompress error: decompressed data exceeds " + RpcConstants.MAX_FRAME_LENGTH + " bytes");
+                }
+                crc.update(output, 0, n);
+                out.writeBytes(output, 0, n);
             }
-            return out.toByteArray();
-        } catch (IOException e) {
+        } catch (DataFormatException e) {
             throw new RuntimeException("gzip decompress error", e);
         }
+        in.readerIndex(end);
+        int expectedCrc = in.readIntLE();
+        int expectedLength = in.readIntLE();
+        if (expectedCrc != (int) crc.getValue() || expectedLength != written) {
+            throw new RuntimeException("gzip decompress error: corrupt gzip trailer");
+        }
+    }
+
+    /**
+     * trailer 中的 ISIZE（原始长度 mod 2^32）由对端写入，只作为预分配输出空间的参考，不超过最大帧长度；
+     * 实际长度由解压循环决定，最后再与 ISIZE 比较
+     */
+    private static int sizeHint(ByteBuf in) {
+        if (in.readableBytes() < HEADER_LENGTH + TRAILER_LENGTH) {
+            throw new RuntimeException("gzip decompress error: data is too short");
+        }
+        long isize = in.getUnsignedIntLE(in.writerIndex() - 4);
+        return (int) Math.min(isize, RpcConstants.MAX_FRAME_LENGTH);
+    }
+
+    private static void skipHeader(ByteBuf in) {
+        if (in.readUnsignedShortLE() != GZIP_MAGIC || in.readByte() != Deflater.DEFLATED) {
+            throw new RuntimeException("gzip decompress error: not in gzip format");
+        }
+        int flags = in.readUnsignedByte();
+        // mtime(4) + XFL(1) + OS(1)
+        in.skipBytes(6);
+        if ((flags & FEXTRA) == FEXTRA) {
+            in.skipBytes(in.readUnsignedShortLE());
+        }
+        if ((flags & FNAME) == FNAME) {
+            skipZeroTerminated(in);
+        }
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            skipZeroTerminated(in);
+        }
+        if ((flags & FHCRC) == FHCRC) {
+            in.skipBytes(2);
+        }
+    }
+
+    private static void skipZeroTerminated(ByteBuf in) {
+        while (in.readByte() != 0) {
+            // skip until the terminating zero byte
+        }
     }
-}
\ No newline at end of file
+}
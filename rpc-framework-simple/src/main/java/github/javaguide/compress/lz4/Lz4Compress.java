@@ -0,0 +1,109 @@
+package github.javaguide.compress.lz4;
+
+import github.javaguide.compress.Compress;
+import github.javaguide.remoting.constants.RpcConstants;
+import io.netty.buffer.ByteBuf;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LZ4 block compression. The compressed form is a 4-byte original length followed by the LZ4 block.
+ * <p>
+ * LZ4 的压缩器/解压器不持有状态，整个进程共享同一个实例，每次调用不会分配 native 上下文
+ */
+public class Lz4Compress implements Compress {
+    private static final int LENGTH_FIELD = 4;
+    private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+    private static final LZ4Compressor COMPRESSOR = FACTORY.fastCompressor();
+    private static final LZ4SafeDecompressor DECOMPRESSOR = FACTORY.safeDecompressor();
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes is null");
+        }
+        byte[] out = new byte[LENGTH_FIELD + COMPRESSOR.maxCompressedLength(bytes.length)];
+        writeLength(out, bytes.length);
+        int compressedLength = COMPRESSOR.compress(bytes, 0, bytes.length, out, LENGTH_FIELD, out.length - LENGTH_FIELD);
+        byte[] result = new byte[LENGTH_FIELD + compressedLength];
+        System.arraycopy(out, 0, result, 0, result.length);
+        return result;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        int length = in.readableBytes();
+        int maxCompressedLength = COMPRESSOR.maxCompressedLength(length);
+        out.ensureWritable(LENGTH_FIELD + maxCompressedLength);
+        if (in.nioBufferCount() != 1 || out.nioBufferCount() != 1) {
+            Compress.super.compress(in, out);
+            return;
+        }
+        out.writeInt(length);
+        // 直接在两个缓冲区的 nio 视图上压缩，不经过中间数组
+        ByteBuffer src = in.nioBuffer(in.readerIndex(), length);
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), maxCompressedLength);
+        int compressedLength = COMPRESSOR.compress(src, src.position(), length, dest, dest.position(), maxCompressedLength);
+        in.skipBytes(length);
+        out.writerIndex(out.writerIndex() + compressedLength);
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes is null");
+        }
+        int originalLength = readLength(bytes);
+        byte[] out = new byte[originalLength];
+        int decompressedLength = DECOMPRESSOR.decompress(bytes, LENGTH_FIELD, bytes.length - LENGTH_FIELD, out, 0, originalLength);
+        if (decompressedLength != originalLength) {
+            // 数据被截断或头部的原始长度不实，不能把补零的结果当作原文返回
+            throw new IllegalArgumentException("lz4 original length [" + originalLength + "] does not match decompressed length [" + decompressedLength + "]");
+        }
+        return out;
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+        int originalLength = checkLength(in.getInt(in.readerIndex()));
+        if (in.nioBufferCount() != 1 || out.nioBufferCount() != 1) {
+            Compress.super.decompress(in, out);
+            return;
+        }
+        in.skipBytes(LENGTH_FIELD);
+        int compressedLength = in.readableBytes();
+        out.ensureWritable(originalLength);
+        ByteBuffer src = in.nioBuffer(in.readerIndex(), compressedLength);
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), originalLength);
+        int decompressedLength = DECOMPRESSOR.decompress(src, src.position(), compressedLength, dest, dest.position(), originalLength);
+        in.skipBytes(compressedLength);
+        out.writerIndex(out.writerIndex() + decompressedLength);
+    }
+
+    private static void writeLength(byte[] out, int length) {
+        out[0] = (byte) (length >>> 24);
+        out[1] = (byte) (length >>> 16);
+        out[2] = (byte) (length >>> 8);
+        out[3] = (byte) length;
+    }
+
+    private static int readLength(byte[] bytes) {
+        if (bytes.length < LENGTH_FIELD) {
+            throw new IllegalArgumentException("lz4 data is too short");
+        }
+        return checkLength((bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF));
+    }
+
+    /**
+     * 原始长度来自对端，超过最大帧长度的一定是伪造或损坏的数据，在按它分配内存之前拒绝
+     */
+    private static int checkLength(int length) {
+        if (length < 0 || length > RpcConstants.MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("invalid lz4 original length: " + length);
+        }
+        return length;
+    }
+}
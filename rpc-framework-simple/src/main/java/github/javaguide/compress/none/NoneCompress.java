@@ -0,0 +1,36 @@
+package github.javaguide.compress.none;
+
+import github.javaguide.compress.Compress;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 不压缩，原样输出。用于小消息或已经压缩过的数据
+ */
+public class NoneCompress implements Compress {
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes is null");
+        }
+        return bytes;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        out.writeBytes(in);
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes is null");
+        }
+        return bytes;
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+        out.writeBytes(in);
+    }
+}
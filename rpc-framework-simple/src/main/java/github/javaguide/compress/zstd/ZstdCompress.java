@@ -0,0 +1,116 @@
+package github.javaguide.compress.zstd;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import github.javaguide.compress.Compress;
+import github.javaguide.remoting.constants.RpcConstants;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Zstandard compression. The compressed form is a 4-byte original length followed by a zstd frame.
+ * <p>
+ * 每个线程复用各自的 native 压缩/解压上下文，避免每条消息都创建、释放 native 资源
+ */
+public class ZstdCompress implements Compress {
+    private static final int LENGTH_FIELD = 4;
+    private static final int DEFAULT_LEVEL = 3;
+    private static final ThreadLocal<ZstdCompressCtx> COMPRESS_CTX = ThreadLocal.withInitial(
+            () -> new ZstdCompressCtx().setLevel(DEFAULT_LEVEL));
+    private static final ThreadLocal<ZstdDecompressCtx> DECOMPRESS_CTX = ThreadLocal.withInitial(ZstdDecompressCtx::new);
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes is null");
+        }
+        byte[] out = new byte[LENGTH_FIELD + (int) Zstd.compressBound(bytes.length)];
+        writeLength(out, bytes.length);
+        int compressedLength = COMPRESS_CTX.get().compressByteArray(out, LENGTH_FIELD, out.length - LENGTH_FIELD, bytes, 0, bytes.length);
+        byte[] result = new byte[LENGTH_FIELD + compressedLength];
+        System.arraycopy(out, 0, result, 0, result.length);
+        return result;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        int length = in.readableBytes();
+        int maxCompressedLength = (int) Zstd.compressBound(length);
+        out.ensureWritable(LENGTH_FIELD + maxCompressedLength);
+        // native 接口只接受 direct buffer，否则退化为字节数组
+        if (!isSingleDirect(in) || !isSingleDirect(out)) {
+            Compress.super.compress(in, out);
+            return;
+        }
+        out.writeInt(length);
+        ByteBuffer src = in.nioBuffer(in.readerIndex(), length);
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), maxCompressedLength);
+        int compressedLength = COMPRESS_CTX.get().compressDirectByteBuffer(dest, dest.position(), maxCompressedLength,
+                src, src.position(), length);
+        in.skipBytes(length);
+        out.writerIndex(out.writerIndex() + compressedLength);
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes is null");
+        }
+        int originalLength = readLength(bytes);
+        byte[] out = new byte[originalLength];
+        int decompressedLength = DECOMPRESS_CTX.get().decompressByteArray(out, 0, originalLength, bytes, LENGTH_FIELD, bytes.length - LENGTH_FIELD);
+        if (decompressedLength != originalLength) {
+            // 数据被截断或头部的原始长度不实，不能把补零的结果当作原文返回
+            throw new IllegalArgumentException("zstd original length [" + originalLength + "] does not match decompressed length [" + decompressedLength + "]");
+        }
+        return out;
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+        int originalLength = checkLength(in.getInt(in.readerIndex()));
+        out.ensureWritable(originalLength);
+        if (!isSingleDirect(in) || !isSingleDirect(out)) {
+            Compress.super.decompress(in, out);
+            return;
+        }
+        in.skipBytes(LENGTH_FIELD);
+        int compressedLength = in.readableBytes();
+        ByteBuffer src = in.nioBuffer(in.readerIndex(), compressedLength);
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), originalLength);
+        int decompressedLength = DECOMPRESS_CTX.get().decompressDirectByteBuffer(dest, dest.position(), originalLength,
+                src, src.position(), compressedLength);
+        in.skipBytes(compressedLength);
+        out.writerIndex(out.writerIndex() + decompressedLength);
+    }
+
+    private static boolean isSingleDirect(ByteBuf buf) {
+        return buf.isDirect() && buf.nioBufferCount() == 1;
+    }
+
+    private static void writeLength(byte[] out, int length) {
+        out[0] = (byte) (length >>> 24);
+        out[1] = (byte) (length >>> 16);
+        out[2] = (byte) (length >>> 8);
+        out[3] = (byte) length;
+    }
+
+    private static int readLength(byte[] bytes) {
+        if (bytes.length < LENGTH_FIELD) {
+            throw new IllegalArgumentException("zstd data is too short");
+        }
+        return checkLength((bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF));
+    }
+
+    /**
+     * 原始长度来自对端，超过最大帧长度的一定是伪造或损坏的数据，在按它分配内存之前拒绝
+     */
+    private static int checkLength(int length) {
+        if (length < 0 || length > RpcConstants.MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("invalid zstd original length: " + length);
+        }
+        return length;
+    }
+}
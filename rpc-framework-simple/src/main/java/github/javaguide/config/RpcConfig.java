@@ -0,0 +1,57 @@
+package github.javaguide.config;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.utils.PropertiesFileUtil;
+import github.javaguide.utils.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Properties;
+
+/**
+ * rpc.properties 中的全局配置，只在首次使用时读取一次。
+ * 同名的 JVM 系统属性（-Drpc.xxx=...）优先于配置文件
+ */
+@Slf4j
+public final class RpcConfig {
+    private static final Properties PROPERTIES = load();
+
+    private RpcConfig() {
+    }
+
+    private static Properties load() {
+        Properties properties = PropertiesFileUtil.readPropertiesFile(RpcConfigEnum.RPC_CONFIG_PATH.getPropertyValue());
+        return properties != null ? properties : new Properties();
+    }
+
+    public static String getString(RpcConfigEnum key, String defaultValue) {
+        String value = System.getProperty(key.getPropertyValue(), PROPERTIES.getProperty(key.getPropertyValue()));
+        return StringUtil.isBlank(value) ? defaultValue : value.trim();
+    }
+
+    /**
+     * 读取单个服务的配置：key 为 {@code <配置项>.<接口全限定名>}，未配置时返回 defaultValue
+     */
+    public static String getServiceString(RpcConfigEnum key, String serviceName, String defaultValue) {
+        String serviceKey = key.getPropertyValue() + "." + serviceName;
+        String value = System.getProperty(serviceKey, PROPERTIES.getProperty(serviceKey));
+        return StringUtil.isBlank(value) ? defaultValue : value.trim();
+    }
+
+    public static int getInt(RpcConfigEnum key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.warn("invalid value [{}] for [{}], use default [{}]", value, key.getPropertyValue(), defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(RpcConfigEnum key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -2,6 +2,7 @@ package github.javaguide.config;
 
 import com.github.houbb.sisyphus.api.support.wait.RetryWait;
 import com.github.houbb.sisyphus.core.support.wait.FixedRetryWait;
+import github.javaguide.remoting.constants.RpcConstants;
 import github.javaguide.remoting.fault.FailOverTolerantStrategy;
 import github.javaguide.remoting.fault.TolerantStrategy;
 import lombok.AllArgsConstructor;
@@ -11,6 +12,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author shuang.kou
  * @createTime 2020年07月21日 20:23:00
@@ -32,10 +35,33 @@ public class RpcServiceConfig {
      * when the interface has multiple implementation classes, distinguish by group
      */
     private String group = "";
+    /**
+     * 单次调用等待响应的超时时间(s)，同时也是重试的等待间隔
+     */
     private int timeout = 5;
     private int maxAttemptCnt = 1;
     private Class<? extends TolerantStrategy> faultClass = FailOverTolerantStrategy.class;
     Class<? extends RetryWait> timeoutStrategy = FixedRetryWait.class;
+    /**
+     * 序列化方式（扩展名，如 kyro、hessian），为空时客户端使用全局默认，服务端沿用请求的序列化方式
+     */
+    private String serialization;
+    /**
+     * 压缩方式（扩展名，如 gzip、lz4），为空时使用全局默认
+     */
+    private String compress;
+    /**
+     * 服务端执行该服务方法的方式（扩展名，如 shared、isolated），为空时使用全局默认
+     */
+    private String dispatcher;
+    /**
+     * 客户端到每个服务端的连接数，不大于0时使用全局默认
+     */
+    private int connections;
+    /**
+     * 多个连接时的选择方式（roundrobin、leastpending），为空时使用全局默认
+     */
+    private String connectionSelect;
     /**
      * target service
      */
@@ -45,6 +71,13 @@ public class RpcServiceConfig {
         return this.getServiceName() + this.getGroup() + this.getVersion();
     }
 
+    /**
+     * 单次调用的响应超时时间(ms)，未配置时使用 {@link RpcConstants#MAX_RESPONSE_TIMEOUT}
+     */
+    public long getResponseTimeoutMillis() {
+        return TimeUnit.SECONDS.toMillis(timeout > 0 ? timeout : RpcConstants.MAX_RESPONSE_TIMEOUT);
+    }
+
     public String getServiceName() {
         return this.service.getClass().getInterfaces()[0].getCanonicalName();
     }
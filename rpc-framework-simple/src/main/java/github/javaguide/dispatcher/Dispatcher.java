@@ -0,0 +1,40 @@
+package github.javaguide.dispatcher;
+
+import github.javaguide.extension.SPI;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 决定服务端在哪个线程上执行业务方法，IO线程只负责解码和分派
+ */
+@SPI
+public interface Dispatcher {
+    /**
+     * @param rpcServiceName rpc service name, isolated dispatcher keeps one pool per service
+     * @param task           invokes the service and writes the response
+     * @throws RejectedExecutionException the queue of the pool is full
+     */
+    void dispatch(String rpcServiceName, Runnable task);
+
+    /**
+     * @return 等待执行的请求数
+     */
+    default int queueDepth() {
+        return 0;
+    }
+
+    /**
+     * @param rpcServiceName rpc service name
+     * @return 执行该服务请求的队列的使用率，0~1，1表示已满；没有有界队列时返回0
+     */
+    default double queueUsage(String rpcServiceName) {
+        return 0;
+    }
+
+    /**
+     * @return 因队列已满被拒绝的请求数
+     */
+    default long rejectedCount() {
+        return 0;
+    }
+}
@@ -0,0 +1,64 @@
+package github.javaguide.dispatcher.impl;
+
+import github.javaguide.config.RpcConfig;
+import github.javaguide.dispatcher.Dispatcher;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.utils.RuntimeUtil;
+import github.javaguide.utils.concurrent.threadpool.CustomThreadPoolConfig;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于有界线程池的分派，队列满时拒绝并计数
+ */
+public abstract class AbstractThreadPoolDispatcher implements Dispatcher {
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @Override
+    public void dispatch(String rpcServiceName, Runnable task) {
+        ThreadPoolExecutor executor = executor(rpcServiceName);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // 由回复失败的服务端记录日志，见 NettyRpcServerHandler#logRejected
+            rejectedCount.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public double queueUsage(String rpcServiceName) {
+        BlockingQueue<Runnable> queue = executor(rpcServiceName).getQueue();
+        int size = queue.size();
+        return (double) size / (size + queue.remainingCapacity());
+    }
+
+    @Override
+    public long rejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return the pool that runs requests of the given service
+     */
+    protected abstract ThreadPoolExecutor executor(String rpcServiceName);
+
+    /**
+     * 创建固定线程数、有界队列的线程池，并登记到 {@link ThreadPoolFactoryUtil} 以便关闭时一并shutdown
+     */
+    protected static ThreadPoolExecutor createThreadPool(String threadNamePrefix) {
+        int threads = RpcConfig.getInt(RpcConfigEnum.DISPATCHER_THREADS, RuntimeUtil.cpus() * 2);
+        CustomThreadPoolConfig customThreadPoolConfig = new CustomThreadPoolConfig();
+        customThreadPoolConfig.setCorePoolSize(threads);
+        customThreadPoolConfig.setMaximumPoolSize(threads);
+        customThreadPoolConfig.setWorkQueue(new ArrayBlockingQueue<>(
+                RpcConfig.getInt(RpcConfigEnum.DISPATCHER_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY)));
+        return (ThreadPoolExecutor) ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent(customThreadPoolConfig, threadNamePrefix, true);
+    }
+}
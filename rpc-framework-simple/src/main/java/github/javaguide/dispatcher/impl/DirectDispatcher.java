@@ -0,0 +1,13 @@
+package github.javaguide.dispatcher.impl;
+
+import github.javaguide.dispatcher.Dispatcher;
+
+/**
+ * 在IO线程上直接执行，省去一次线程切换；业务方法阻塞时会拖慢同一event loop上的所有连接
+ */
+public class DirectDispatcher implements Dispatcher {
+    @Override
+    public void dispatch(String rpcServiceName, Runnable task) {
+        task.run();
+    }
+}
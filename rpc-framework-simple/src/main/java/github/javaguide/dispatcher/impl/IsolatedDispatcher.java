@@ -0,0 +1,29 @@
+package github.javaguide.dispatcher.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 每个服务一个有界线程池，某个服务变慢或排队时不影响同一连接上其他服务的请求
+ */
+public class IsolatedDispatcher extends AbstractThreadPoolDispatcher {
+    /**
+     * key: rpc service name
+     */
+    private final Map<String, ThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+
+    @Override
+    protected ThreadPoolExecutor executor(String rpcServiceName) {
+        return executors.computeIfAbsent(rpcServiceName, name -> createThreadPool("rpc-dispatcher-" + name));
+    }
+
+    @Override
+    public int queueDepth() {
+        int queueDepth = 0;
+        for (ThreadPoolExecutor executor : executors.values()) {
+            queueDepth += executor.getQueue().size();
+        }
+        return queueDepth;
+    }
+}
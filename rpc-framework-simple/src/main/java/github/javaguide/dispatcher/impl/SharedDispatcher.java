@@ -0,0 +1,20 @@
+package github.javaguide.dispatcher.impl;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 所有服务共享一个有界线程池
+ */
+public class SharedDispatcher extends AbstractThreadPoolDispatcher {
+    private final ThreadPoolExecutor executor = createThreadPool("rpc-dispatcher-shared");
+
+    @Override
+    protected ThreadPoolExecutor executor(String rpcServiceName) {
+        return executor;
+    }
+
+    @Override
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+}
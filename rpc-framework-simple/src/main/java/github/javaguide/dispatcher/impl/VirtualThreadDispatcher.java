@@ -0,0 +1,56 @@
+package github.javaguide.dispatcher.impl;
+
+import github.javaguide.dispatcher.Dispatcher;
+import github.javaguide.utils.concurrent.VirtualThreads;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 每个请求一个虚拟线程，业务方法可以放心阻塞，不需要估算线程池大小。
+ * 虚拟线程需要JDK 21+，运行在更低版本时退回到 {@link SharedDispatcher}
+ */
+@Slf4j
+public class VirtualThreadDispatcher implements Dispatcher {
+    private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+    private final SharedDispatcher fallback = executor == null ? new SharedDispatcher() : null;
+
+    @Override
+    public void dispatch(String rpcServiceName, Runnable task) {
+        if (executor == null) {
+            fallback.dispatch(rpcServiceName, task);
+            return;
+        }
+        executor.execute(task);
+    }
+
+    @Override
+    public int queueDepth() {
+        return fallback == null ? 0 : fallback.queueDepth();
+    }
+
+    @Override
+    public double queueUsage(String rpcServiceName) {
+        return fallback == null ? 0 : fallback.queueUsage(rpcServiceName);
+    }
+
+    @Override
+    public long rejectedCount() {
+        return fallback == null ? 0 : fallback.rejectedCount();
+    }
+
+    /**
+     * @return null if virtual threads are not available
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!VirtualThreads.isAvailable()) {
+            log.warn("virtual threads are not available on java [{}], use the shared dispatcher instead",
+                    System.getProperty("java.version"));
+            return null;
+        }
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("rpc-dispatcher-virtual");
+        ThreadPoolFactoryUtil.registerThreadPool("rpc-dispatcher-virtual", executor);
+        return executor;
+    }
+}
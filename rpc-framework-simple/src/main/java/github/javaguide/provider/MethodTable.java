@@ -0,0 +1,139 @@
+package github.javaguide.provider;
+
+import github.javaguide.remoting.dto.RpcCompactRequest;
+import github.javaguide.remoting.dto.RpcRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 服务端方法表：为已发布服务的每个方法分配一个整数id，握手时下发给客户端，
+ * 客户端此后可以用 {@link RpcCompactRequest} 代替完整的 {@link RpcRequest}。
+ * 同时保存登记时绑定到服务对象上的 {@link MethodHandle}，调用时按id直接分派，不再逐次反射查找方法
+ */
+@Slf4j
+public class MethodTable {
+    /**
+     * 统一的调用签名：(Object[] parameters) -> Object
+     */
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    /**
+     * key: {@link RpcRequest#getMethodKey()}，写时复制，读不加锁
+     */
+    private volatile Map<String, Integer> methodIds = Collections.emptyMap();
+    /**
+     * 下标为方法id
+     */
+    private volatile MethodEntry[] methods = new MethodEntry[0];
+
+    /**
+     * 登记服务接口的全部方法，同一服务重复登记时忽略
+     *
+     * @param service 服务对象，方法句柄预先绑定到该对象上
+     */
+    public synchronized void register(Class<?> serviceInterface, Object service, String group, String version) {
+        Map<String, Integer> newMethodIds = new HashMap<>(methodIds);
+        MethodEntry[] newMethods = methods;
+        for (Method method : serviceInterface.getMethods()) {
+            RpcRequest template = RpcRequest.builder()
+                    .interfaceName(serviceInterface.getCanonicalName())
+                    .methodName(method.getName())
+                    .paramTypes(method.getParameterTypes())
+                    .group(group)
+                    .version(version).build();
+            String methodKey = template.getMethodKey();
+            if (newMethodIds.containsKey(methodKey)) {
+                continue;
+            }
+            newMethods = Arrays.copyOf(newMethods, newMethods.length + 1);
+            newMethods[newMethods.length - 1] = new MethodEntry(template, invoker(method, service));
+            newMethodIds.put(methodKey, newMethods.length - 1);
+        }
+        methods = newMethods;
+        methodIds = Collections.unmodifiableMap(newMethodIds);
+        log.info("method table of [{}] registered, [{}] methods in total", serviceInterface.getCanonicalName(), newMethods.length);
+    }
+
+    /**
+     * @return 方法key到id的映射，握手时下发给客户端
+     */
+    public Map<String, Integer> getMethodIds() {
+        return methodIds;
+    }
+
+    /**
+     * @return 请求对应的方法id，方法未登记时返回-1
+     */
+    public int methodId(RpcRequest rpcRequest) {
+        Integer methodId = methodIds.get(rpcRequest.getMethodKey());
+        return methodId == null ? -1 : methodId;
+    }
+
+    /**
+     * 按方法id还原完整的请求
+     *
+     * @return null if the id is unknown
+     */
+    public RpcRequest toRpcRequest(RpcCompactRequest compactRequest) {
+        MethodEntry entry = entry(compactRequest.getMethodId());
+        if (entry == null) {
+            return null;
+        }
+        RpcRequest template = entry.template;
+        return RpcRequest.builder()
+                .interfaceName(template.getInterfaceName())
+                .methodName(template.getMethodName())
+                .paramTypes(template.getParamTypes())
+                .group(template.getGroup())
+                .version(template.getVersion())
+                .parameters(compactRequest.getParameters()).build();
+    }
+
+    /**
+     * @return 绑定到服务对象的方法句柄，id未知或无法访问该方法时返回null
+     */
+    public MethodHandle invoker(int methodId) {
+        MethodEntry entry = entry(methodId);
+        return entry == null ? null : entry.invoker;
+    }
+
+    private MethodEntry entry(int methodId) {
+        MethodEntry[] current = methods;
+        if (methodId < 0 || methodId >= current.length) {
+            return null;
+        }
+        return current[methodId];
+    }
+
+    private static MethodHandle invoker(Method method, Object service) {
+        try {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method)
+                    .bindTo(service)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(INVOKER_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            // 无法生成句柄时由RpcRequestHandler退回到反射调用
+            log.warn("can not create method handle for [{}], fall back to reflection", method, e);
+            return null;
+        }
+    }
+
+    private static final class MethodEntry {
+        private final RpcRequest template;
+        private final MethodHandle invoker;
+
+        private MethodEntry(RpcRequest template, MethodHandle invoker) {
+            this.template = template;
+            this.invoker = invoker;
+        }
+    }
+}
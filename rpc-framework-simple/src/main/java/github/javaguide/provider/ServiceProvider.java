@@ -21,6 +21,12 @@ public interface ServiceProvider {
      */
     Object getService(String rpcServiceName);
 
+    /**
+     * @param rpcServiceName rpc service name
+     * @return the config the service was added with
+     */
+    RpcServiceConfig getServiceConfig(String rpcServiceName);
+
     /**
      * @param rpcServiceConfig rpc service related attributes
      */
@@ -5,6 +5,8 @@ import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.enums.ServiceRegistryEnum;
 import github.javaguide.exception.RpcException;
 import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.MethodTable;
 import github.javaguide.provider.ServiceProvider;
 import github.javaguide.registry.ServiceRegistry;
 import github.javaguide.remoting.transport.netty.server.NettyRpcServer;
@@ -29,12 +31,20 @@ public class ZkServiceProviderImpl implements ServiceProvider {
      * value: service object
      */
     private final Map<String, Object> serviceMap;
+    /**
+     * key: rpc service name
+     * value: service config, e.g. the codec used for its responses
+     */
+    private final Map<String, RpcServiceConfig> serviceConfigMap;
     private final Set<String> registeredService;
     private final ServiceRegistry serviceRegistry;
+    private final MethodTable methodTable;
 
     public ZkServiceProviderImpl() {
         serviceMap = new ConcurrentHashMap<>();
+        serviceConfigMap = new ConcurrentHashMap<>();
         registeredService = ConcurrentHashMap.newKeySet();
+        methodTable = SingletonFactory.getInstance(MethodTable.class);
         serviceRegistry = ExtensionLoader.getExtensionLoader(ServiceRegistry.class).getExtension(ServiceRegistryEnum.ZK.getName());
     }
 
@@ -46,6 +56,9 @@ public class ZkServiceProviderImpl implements ServiceProvider {
         }
         registeredService.add(rpcServiceName);
         serviceMap.put(rpcServiceName, rpcServiceConfig.getService());
+        serviceConfigMap.put(rpcServiceName, rpcServiceConfig);
+        methodTable.register(rpcServiceConfig.getService().getClass().getInterfaces()[0], rpcServiceConfig.getService(),
+                rpcServiceConfig.getGroup(), rpcServiceConfig.getVersion());
         log.info("Add service: {} and interfaces:{}", rpcServiceName, rpcServiceConfig.getService().getClass().getInterfaces());
     }
 
@@ -58,6 +71,15 @@ public class ZkServiceProviderImpl implements ServiceProvider {
         return service;
     }
 
+    @Override
+    public RpcServiceConfig getServiceConfig(String rpcServiceName) {
+        RpcServiceConfig rpcServiceConfig = serviceConfigMap.get(rpcServiceName);
+        if (null == rpcServiceConfig) {
+            throw new RpcException(RpcErrorMessageEnum.SERVICE_CAN_NOT_BE_FOUND);
+        }
+        return rpcServiceConfig;
+    }
+
 
     //发布服务：1.服务端本地保存到map 2.注册到zk
     @Override
@@ -65,7 +87,8 @@ public class ZkServiceProviderImpl implements ServiceProvider {
         try {
             String host = InetAddress.getLocalHost().getHostAddress();
             this.addService(rpcServiceConfig);
-            serviceRegistry.registerService(rpcServiceConfig.getRpcServiceName(), new InetSocketAddress(host, NettyRpcServer.PORT));
+            serviceRegistry.registerService(rpcServiceConfig.getRpcServiceName(), new InetSocketAddress(host, NettyRpcServer.PORT),
+                    NettyRpcServer.domainSocketPath());
         } catch (UnknownHostException e) {
             log.error("occur exception when getHostAddress", e);
         }
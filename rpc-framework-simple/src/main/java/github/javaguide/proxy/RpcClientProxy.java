@@ -1,12 +1,12 @@
 package github.javaguide.proxy;
 
 import github.javaguide.compress.Compress;
+import github.javaguide.config.RpcConfig;
 import github.javaguide.config.RpcServiceConfig;
-import github.javaguide.enums.RequestIdGenerateEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.enums.RpcResponseCodeEnum;
 import github.javaguide.exception.RpcException;
-import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
@@ -14,16 +14,18 @@ import github.javaguide.remoting.fault.TolerantStrategy;
 import github.javaguide.remoting.transport.RpcRequestTransport;
 import github.javaguide.remoting.transport.netty.client.ClientUnprocessedRequests;
 import github.javaguide.remoting.transport.netty.client.NettyRpcClient;
+import github.javaguide.remoting.transport.shm.ShmRpcClient;
 import github.javaguide.remoting.transport.socket.SocketRpcClient;
-import github.javaguide.requestIdGenerate.RequestIdGenerate;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -40,12 +42,20 @@ import java.util.concurrent.TimeoutException;
 public class RpcClientProxy implements InvocationHandler {
 
     private static final String INTERFACE_NAME = "interfaceName";
+    /**
+     * rpc.proxy=stub 时为接口生成字节码桩类，否则使用JDK动态代理
+     */
+    private static final boolean USE_STUB = "stub".equalsIgnoreCase(RpcConfig.getString(RpcConfigEnum.PROXY, "jdk"));
 
     /**
      * Used to send requests to the server.And there are two implementations: socket and netty
      */
     private final RpcRequestTransport rpcRequestTransport;
     private final RpcServiceConfig rpcServiceConfig;
+    /**
+     * JDK动态代理下每个方法的元数据，避免每次调用时重新获取
+     */
+    private final Map<Method, RpcMethodInfo> methodInfos = new ConcurrentHashMap<>();
 
     public RpcClientProxy(RpcRequestTransport rpcRequestTransport, RpcServiceConfig rpcServiceConfig) {
         this.rpcRequestTransport = rpcRequestTransport;
@@ -63,6 +73,9 @@ public class RpcClientProxy implements InvocationHandler {
      */
     @SuppressWarnings("unchecked")
     public <T> T getProxy(Class<T> clazz) {
+        if (USE_STUB && RpcStubGenerator.isSupported(clazz)) {
+            return RpcStubGenerator.newStub(clazz, this);
+        }
         return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[]{clazz}, this);
     }
 
@@ -71,22 +84,41 @@ public class RpcClientProxy implements InvocationHandler {
      * The proxy object is the object you get through the getProxy method.
      * 代理的是@RpcReference注解的类的方法
      */
-    @SneakyThrows
-    @SuppressWarnings("unchecked")
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) {
-        log.info("invoked method: [{}]", method.getName());
-        //在client端调用该远程service时，通过反射获取该method以及类的信息，封装成rpcRequest往zk中寻找可用的远程服务的channel，后续rpcRequest会被封装成rpcMessage与server交互
-        RpcRequest rpcRequest = RpcRequest.builder().methodName(method.getName())
-                .parameters(args)
-                .interfaceName(method.getDeclaringClass().getName())
-                .paramTypes(method.getParameterTypes())
-                .requestId(ExtensionLoader.getExtensionLoader(RequestIdGenerate.class).getExtension(RequestIdGenerateEnum.SNOWFLAKE.getName()).getRequestId())
-                .group(rpcServiceConfig.getGroup())
-                .version(rpcServiceConfig.getVersion())
-//                .timeout(rpcServiceConfig.getTimeout())
-//                .maxAttemptCnt(rpcServiceConfig.getMaxAttemptCnt())
-                .build();
+        return invoke(methodInfos.computeIfAbsent(method, RpcMethodInfo::new), args);
+    }
+
+    /**
+     * JDK动态代理与生成的桩类共用的调用入口，方法元数据已预先算好
+     */
+    @SneakyThrows
+    public Object invoke(RpcMethodInfo methodInfo, Object[] args) {
+        log.info("invoked method: [{}]", methodInfo.getMethodName());
+        //在client端调用该远程service时，用该method以及类的信息封装成rpcRequest往zk中寻找可用的远程服务的channel，后续rpcRequest会被封装成rpcMessage与server交互
+        RpcRequest rpcRequest = methodInfo.newRpcRequest(args, rpcServiceConfig);
+        if (methodInfo.isAsync() && rpcRequestTransport instanceof NettyRpcClient) {
+            //返回值为CompletableFuture的方法不阻塞调用线程，响应到达后再校验并取出data
+            TolerantStrategy tolerantStrategy = SingletonFactory.getInstance(rpcServiceConfig.getFaultClass());
+            return tolerantStrategy.doTolerantAsync(rpcRequest, rpcServiceConfig).thenApply(rpcResponse -> {
+                this.check(rpcResponse, rpcRequest);
+                return rpcResponse.getData();
+            });
+        }
+        if (rpcRequestTransport instanceof ShmRpcClient) {
+            //共享内存只连接同一主机上的一个服务端，没有可转移的节点，不经过容错策略
+            CompletableFuture<RpcResponse<Object>> resultFuture = ((ShmRpcClient) rpcRequestTransport)
+                    .sendRpcRequest(rpcRequest, rpcServiceConfig.getResponseTimeoutMillis());
+            if (methodInfo.isAsync()) {
+                return resultFuture.thenApply(rpcResponse -> {
+                    this.check(rpcResponse, rpcRequest);
+                    return rpcResponse.getData();
+                });
+            }
+            RpcResponse<Object> rpcResponse = resultFuture.get();
+            this.check(rpcResponse, rpcRequest);
+            return rpcResponse.getData();
+        }
         RpcResponse<Object> rpcResponse = null;
         if (rpcRequestTransport instanceof NettyRpcClient) {
             //根据client容错机制指定调用策略，支持failover（失败转移）、failFast（快速失败）两种策略
@@ -124,10 +156,6 @@ public class RpcClientProxy implements InvocationHandler {
             throw new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE, INTERFACE_NAME + ":" + rpcRequest.getInterfaceName());
         }
 
-        if (!rpcRequest.getRequestId().equals(rpcResponse.getRequestId())) {
-            throw new RpcException(RpcErrorMessageEnum.REQUEST_NOT_MATCH_RESPONSE, INTERFACE_NAME + ":" + rpcRequest.getInterfaceName());
-        }
-
         if (rpcResponse.getCode() == null || !rpcResponse.getCode().equals(RpcResponseCodeEnum.SUCCESS.getCode())) {
             throw new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE, INTERFACE_NAME + ":" + rpcRequest.getInterfaceName());
         }
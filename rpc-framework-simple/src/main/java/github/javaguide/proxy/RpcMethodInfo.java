@@ -0,0 +1,37 @@
+package github.javaguide.proxy;
+
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.remoting.dto.RpcRequest;
+import lombok.Getter;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+
+/**
+ * 代理方法的元数据，在创建代理时计算一次，调用时只需打包参数
+ */
+@Getter
+public final class RpcMethodInfo {
+    private final String interfaceName;
+    private final String methodName;
+    private final Class<?>[] paramTypes;
+    /**
+     * 返回值为 CompletableFuture（或其父接口 CompletionStage、Future）时走异步调用
+     */
+    private final boolean async;
+
+    public RpcMethodInfo(Method method) {
+        this.interfaceName = method.getDeclaringClass().getName();
+        this.methodName = method.getName();
+        this.paramTypes = method.getParameterTypes();
+        Class<?> returnType = method.getReturnType();
+        this.async = returnType == CompletableFuture.class || returnType == CompletionStage.class || returnType == Future.class;
+    }
+
+    public RpcRequest newRpcRequest(Object[] args, RpcServiceConfig rpcServiceConfig) {
+        return new RpcRequest(interfaceName, methodName, args, paramTypes,
+                rpcServiceConfig.getVersion(), rpcServiceConfig.getGroup());
+    }
+}
@@ -0,0 +1,224 @@
+package github.javaguide.proxy;
+
+import github.javaguide.exception.RpcException;
+import lombok.extern.slf4j.Slf4j;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 为服务接口生成实现类（桩类），替代 {@link java.lang.reflect.Proxy}。
+ * 桩类的每个方法只是把参数打包成数组，连同创建时算好的 {@link RpcMethodInfo} 交给 {@link RpcClientProxy#invoke(RpcMethodInfo, Object[])}，
+ * 不再经过 InvocationHandler 和每次调用时的反射：
+ * <pre>
+ * public final class RpcStub$HelloService$0 implements HelloService {
+ *     private final RpcClientProxy proxy;
+ *     private final RpcMethodInfo[] methods;
+ *
+ *     public String hello(Hello hello) {
+ *         return (String) proxy.invoke(methods[0], new Object[]{hello});
+ *     }
+ * }
+ * </pre>
+ * 通过 rpc.proxy=stub 启用
+ */
+@Slf4j
+public final class RpcStubGenerator {
+    private static final String PROXY_INTERNAL_NAME = Type.getInternalName(RpcClientProxy.class);
+    private static final String METHOD_INFO_DESCRIPTOR = Type.getDescriptor(RpcMethodInfo.class);
+    private static final String METHODS_DESCRIPTOR = Type.getDescriptor(RpcMethodInfo[].class);
+    private static final String INVOKE_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(Object.class),
+            Type.getType(RpcMethodInfo.class), Type.getType(Object[].class));
+    private static final AtomicInteger STUB_COUNTER = new AtomicInteger();
+    /**
+     * 每个接口只生成一次桩类
+     */
+    private static final Map<Class<?>, StubClass> STUB_CLASSES = new ConcurrentHashMap<>();
+
+    private RpcStubGenerator() {
+    }
+
+    /**
+     * 接口必须是public的，否则桩类无法实现它
+     */
+    public static boolean isSupported(Class<?> serviceInterface) {
+        return serviceInterface.isInterface() && Modifier.isPublic(serviceInterface.getModifiers());
+    }
+
+    public static <T> T newStub(Class<T> serviceInterface, RpcClientProxy rpcClientProxy) {
+        StubClass stubClass = STUB_CLASSES.computeIfAbsent(serviceInterface, RpcStubGenerator::generate);
+        try {
+            return serviceInterface.cast(stubClass.type
+                    .getConstructor(RpcClientProxy.class, RpcMethodInfo[].class)
+                    .newInstance(rpcClientProxy, stubClass.methods));
+        } catch (ReflectiveOperationException e) {
+            throw new RpcException("create rpc stub failed: " + serviceInterface.getName(), e);
+        }
+    }
+
+    private static StubClass generate(Class<?> serviceInterface) {
+        List<Method> methods = new ArrayList<>();
+        for (Method method : serviceInterface.getMethods()) {
+            if (!Modifier.isStatic(method.getModifiers())) {
+                methods.add(method);
+            }
+        }
+        String className = "github/javaguide/proxy/RpcStub$" + serviceInterface.getSimpleName() + "$" + STUB_COUNTER.getAndIncrement();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null,
+                "java/lang/Object", new String[]{Type.getInternalName(serviceInterface)});
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "proxy", "L" + PROXY_INTERNAL_NAME + ";", null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "methods", METHODS_DESCRIPTOR, null, null).visitEnd();
+        generateConstructor(cw, className);
+        RpcMethodInfo[] methodInfos = new RpcMethodInfo[methods.size()];
+        for (int i = 0; i < methods.size(); i++) {
+            methodInfos[i] = new RpcMethodInfo(methods.get(i));
+            generateMethod(cw, className, methods.get(i), i);
+        }
+        cw.visitEnd();
+        Class<?> type = new StubClassLoader(serviceInterface.getClassLoader())
+                .define(className.replace('/', '.'), cw.toByteArray());
+        log.info("generated rpc stub [{}] for [{}]", type.getName(), serviceInterface.getName());
+        return new StubClass(type, methodInfos);
+    }
+
+    private static void generateConstructor(ClassWriter cw, String className) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>",
+                "(L" + PROXY_INTERNAL_NAME + ";" + METHODS_DESCRIPTOR + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, className, "proxy", "L" + PROXY_INTERNAL_NAME + ";");
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, className, "methods", METHODS_DESCRIPTOR);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * return (R) proxy.invoke(methods[index], new Object[]{args...});
+     */
+    private static void generateMethod(ClassWriter cw, String className, Method method, int index) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, method.getName(), Type.getMethodDescriptor(method), null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, className, "proxy", "L" + PROXY_INTERNAL_NAME + ";");
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, className, "methods", METHODS_DESCRIPTOR);
+        mv.visitLdcInsn(index);
+        mv.visitInsn(Opcodes.AALOAD);
+        Class<?>[] paramTypes = method.getParameterTypes();
+        mv.visitLdcInsn(paramTypes.length);
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+        int slot = 1;
+        for (int i = 0; i < paramTypes.length; i++) {
+            Type paramType = Type.getType(paramTypes[i]);
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitLdcInsn(i);
+            mv.visitVarInsn(paramType.getOpcode(Opcodes.ILOAD), slot);
+            box(mv, paramType);
+            mv.visitInsn(Opcodes.AASTORE);
+            slot += paramType.getSize();
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, PROXY_INTERNAL_NAME, "invoke", INVOKE_DESCRIPTOR, false);
+        Type returnType = Type.getType(method.getReturnType());
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(Opcodes.POP);
+        } else {
+            unbox(mv, returnType);
+        }
+        mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        Type boxed = boxedType(type);
+        if (boxed != null) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, boxed.getInternalName(), "valueOf",
+                    Type.getMethodDescriptor(boxed, type), false);
+        }
+    }
+
+    private static void unbox(MethodVisitor mv, Type type) {
+        Type boxed = boxedType(type);
+        if (boxed == null) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, type.getSort() == Type.ARRAY ? type.getDescriptor() : type.getInternalName());
+            return;
+        }
+        mv.visitTypeInsn(Opcodes.CHECKCAST, boxed.getInternalName());
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, boxed.getInternalName(), type.getClassName() + "Value",
+                Type.getMethodDescriptor(type), false);
+    }
+
+    /**
+     * @return the wrapper type of a primitive type, null for reference types
+     */
+    private static Type boxedType(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                return Type.getType(Boolean.class);
+            case Type.CHAR:
+                return Type.getType(Character.class);
+            case Type.BYTE:
+                return Type.getType(Byte.class);
+            case Type.SHORT:
+                return Type.getType(Short.class);
+            case Type.INT:
+                return Type.getType(Integer.class);
+            case Type.FLOAT:
+                return Type.getType(Float.class);
+            case Type.LONG:
+                return Type.getType(Long.class);
+            case Type.DOUBLE:
+                return Type.getType(Double.class);
+            default:
+                return null;
+        }
+    }
+
+    private static final class StubClass {
+        private final Class<?> type;
+        private final RpcMethodInfo[] methods;
+
+        private StubClass(Class<?> type, RpcMethodInfo[] methods) {
+            this.type = type;
+            this.methods = methods;
+        }
+    }
+
+    /**
+     * 桩类既要看到服务接口（可能来自业务的类加载器），也要看到框架的类
+     */
+    private static final class StubClassLoader extends ClassLoader {
+        private StubClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            try {
+                return super.loadClass(name, resolve);
+            } catch (ClassNotFoundException e) {
+                return RpcStubGenerator.class.getClassLoader().loadClass(name);
+            }
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import github.javaguide.extension.SPI;
 import github.javaguide.remoting.dto.RpcRequest;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 
 /**
  * service discovery
@@ -20,4 +21,26 @@ public interface ServiceDiscovery {
      * @return service address
      */
     InetSocketAddress lookupService(RpcRequest rpcRequest);
+
+    /**
+     * lookup service by rpcServiceName, preferring a unix domain socket when the selected server runs on this host
+     *
+     * @param rpcRequest rpc service pojo
+     * @return unix domain socket address of a local server, otherwise the same as {@link #lookupService}
+     */
+    default SocketAddress lookupServicePreferLocal(RpcRequest rpcRequest) {
+        return lookupService(rpcRequest);
+    }
+
+    /**
+     * the unix domain socket returned by {@link #lookupServicePreferLocal} could not be connected,
+     * forget it so the next lookup reads the registry again
+     *
+     * @param rpcRequest          rpc service pojo
+     * @param domainSocketAddress the unix domain socket address that failed
+     * @return tcp address of the same server
+     */
+    default InetSocketAddress domainSocketUnavailable(RpcRequest rpcRequest, SocketAddress domainSocketAddress) {
+        return lookupService(rpcRequest);
+    }
 }
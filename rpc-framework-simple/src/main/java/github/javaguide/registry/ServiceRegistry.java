@@ -20,4 +20,15 @@ public interface ServiceRegistry {
      */
     void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress);
 
+    /**
+     * register service, together with the unix domain socket the server also listens on
+     *
+     * @param rpcServiceName    rpc service name
+     * @param inetSocketAddress service address
+     * @param domainSocketPath  unix domain socket path, null if the server does not listen on one
+     */
+    default void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress, String domainSocketPath) {
+        registerService(rpcServiceName, inetSocketAddress);
+    }
+
 }
@@ -1,6 +1,8 @@
 package github.javaguide.registry.zk;
 
+import github.javaguide.config.RpcConfig;
 import github.javaguide.enums.LoadBalanceEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.exception.RpcException;
 import github.javaguide.extension.ExtensionLoader;
@@ -8,15 +10,20 @@ import github.javaguide.loadbalance.LoadBalance;
 import github.javaguide.registry.ServiceDiscovery;
 import github.javaguide.registry.zk.util.CuratorUtils;
 import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.transport.netty.NettyTransport;
 import github.javaguide.utils.CollectionUtil;
 import github.javaguide.utils.MavenDependencyLoaderUtil;
 import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import io.netty.channel.unix.DomainSocketAddress;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.*;
@@ -34,6 +41,12 @@ public class ZkServiceDiscoveryImpl implements ServiceDiscovery {
     //用于主动更新服务器本地缓存cache的线程
     ExecutorService executorService;
     private final static long interval = 5;
+    private static final boolean PREFER_DOMAIN_SOCKET = RpcConfig.getBoolean(RpcConfigEnum.CLIENT_PREFER_DOMAIN_SOCKET, true);
+    /**
+     * key: 服务名/服务端地址，value: 该服务端发布的unix domain socket路径，没有时为空串
+     */
+    private final Map<String, String> domainSocketPaths = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> localHosts = new ConcurrentHashMap<>();
     public ZkServiceDiscoveryImpl() {
         //spi
         this.loadBalance = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension(LoadBalanceEnum.LOADBALANCE.getName());
@@ -52,6 +65,50 @@ public class ZkServiceDiscoveryImpl implements ServiceDiscovery {
 
     @Override
     public InetSocketAddress lookupService(RpcRequest rpcRequest) {
+        String targetServiceUrl = selectServiceUrl(rpcRequest);
+        String[] socketAddressArray = targetServiceUrl.split(":");
+        String host = socketAddressArray[0];
+        int port = Integer.parseInt(socketAddressArray[1]);
+        return new InetSocketAddress(host, port);
+    }
+
+    /**
+     * 负载均衡选出的服务端在本机、且在注册中心发布了unix domain socket时，返回该socket地址，绕过TCP回环
+     */
+    @Override
+    public SocketAddress lookupServicePreferLocal(RpcRequest rpcRequest) {
+        String targetServiceUrl = selectServiceUrl(rpcRequest);
+        String[] socketAddressArray = targetServiceUrl.split(":");
+        String host = socketAddressArray[0];
+        if (PREFER_DOMAIN_SOCKET && NettyTransport.supportsDomainSocket() && isLocalHost(host)) {
+            String domainSocketPath = domainSocketPaths.computeIfAbsent(rpcRequest.getRpcServiceName() + "/" + targetServiceUrl,
+                    key -> domainSocketPath(rpcRequest.getRpcServiceName(), targetServiceUrl));
+            if (!domainSocketPath.isEmpty()) {
+                log.info("use unix domain socket [{}] for local service address [{}]", domainSocketPath, targetServiceUrl);
+                return new DomainSocketAddress(domainSocketPath);
+            }
+        }
+        return new InetSocketAddress(host, Integer.parseInt(socketAddressArray[1]));
+    }
+
+    /**
+     * 连接失败说明节点数据中的路径已失效（服务端已退出或不再监听），移除缓存的路径，返回同一服务端的TCP地址
+     */
+    @Override
+    public InetSocketAddress domainSocketUnavailable(RpcRequest rpcRequest, SocketAddress domainSocketAddress) {
+        String path = ((DomainSocketAddress) domainSocketAddress).path();
+        String prefix = rpcRequest.getRpcServiceName() + "/";
+        for (Map.Entry<String, String> entry : domainSocketPaths.entrySet()) {
+            if (entry.getKey().startsWith(prefix) && path.equals(entry.getValue())
+                    && domainSocketPaths.remove(entry.getKey(), path)) {
+                String[] socketAddressArray = entry.getKey().substring(prefix.length()).split(":");
+                return new InetSocketAddress(socketAddressArray[0], Integer.parseInt(socketAddressArray[1]));
+            }
+        }
+        return lookupService(rpcRequest);
+    }
+
+    private String selectServiceUrl(RpcRequest rpcRequest) {
         String rpcServiceName = rpcRequest.getRpcServiceName();
         System.out.println("尝试获取服务："+rpcServiceName);
         List<String> serviceUrlList = cache.get(rpcServiceName);
@@ -68,10 +125,30 @@ public class ZkServiceDiscoveryImpl implements ServiceDiscovery {
         // load balancing
         String targetServiceUrl = loadBalance.selectServiceAddress(serviceUrlList, rpcRequest);
         log.info("Successfully found the service address:[{}]", targetServiceUrl);
-        String[] socketAddressArray = targetServiceUrl.split(":");
-        String host = socketAddressArray[0];
-        int port = Integer.parseInt(socketAddressArray[1]);
-        return new InetSocketAddress(host, port);
+        return targetServiceUrl;
+    }
+
+    /**
+     * 服务端地址节点数据中的unix domain socket路径，没有时返回空串
+     */
+    private static String domainSocketPath(String rpcServiceName, String serviceUrl) {
+        String data = CuratorUtils.getNodeData(CuratorUtils.getZkClient(), rpcServiceName, serviceUrl);
+        if (data == null || !data.startsWith(CuratorUtils.DOMAIN_SOCKET_PREFIX)) {
+            return "";
+        }
+        return data.substring(CuratorUtils.DOMAIN_SOCKET_PREFIX.length());
+    }
+
+    private boolean isLocalHost(String host) {
+        return localHosts.computeIfAbsent(host, h -> {
+            try {
+                InetAddress address = InetAddress.getByName(h);
+                return address.isLoopbackAddress() || address.isAnyLocalAddress() || NetworkInterface.getByInetAddress(address) != null;
+            } catch (IOException e) {
+                log.warn("can not resolve host [{}]", h, e);
+                return false;
+            }
+        });
     }
 
     public void refreshServiceUrlList(){
@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
 
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 
 /**
  * service registration  based on zookeeper
@@ -22,4 +23,17 @@ public class ZkServiceRegistryImpl implements ServiceRegistry {
         CuratorFramework zkClient = CuratorUtils.getZkClient();
         CuratorUtils.createPersistentNode(zkClient, servicePath);
     }
+
+    /**
+     * unix domain socket 路径保存在地址节点的数据中，不改变节点名，只认识 host:port 的客户端不受影响；
+     * 不再监听unix domain socket时清空节点数据，避免客户端读到上次注册的路径
+     */
+    @Override
+    public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress, String domainSocketPath) {
+        String servicePath = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName + inetSocketAddress.toString();
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+        byte[] data = domainSocketPath == null
+                ? new byte[0] : (CuratorUtils.DOMAIN_SOCKET_PREFIX + domainSocketPath).getBytes(StandardCharsets.UTF_8);
+        CuratorUtils.createPersistentNode(zkClient, servicePath, data);
+    }
 }
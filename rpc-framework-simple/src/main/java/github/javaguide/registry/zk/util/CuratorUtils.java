@@ -13,6 +13,7 @@ import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.CreateMode;
 
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -32,6 +33,10 @@ public final class CuratorUtils {
     private static final int BASE_SLEEP_TIME = 1000;
     private static final int MAX_RETRIES = 3;
     public static final String ZK_REGISTER_ROOT_PATH = "/my-rpc";
+    /**
+     * 服务端地址节点的数据中保存其unix domain socket路径时使用的前缀，eg: unix:///tmp/guide-rpc.sock
+     */
+    public static final String DOMAIN_SOCKET_PREFIX = "unix://";
     private static final Map<String, List<String>> SERVICE_ADDRESS_MAP = new ConcurrentHashMap<>();
     private static final Set<String> REGISTERED_PATH_SET = ConcurrentHashMap.newKeySet();
     private static CuratorFramework zkClient;
@@ -60,6 +65,45 @@ public final class CuratorUtils {
         }
     }
 
+    /**
+     * Create persistent nodes with data, the data of an existing node is overwritten
+     *
+     * @param path node path
+     * @param data node data
+     */
+    public static void createPersistentNode(CuratorFramework zkClient, String path, byte[] data) {
+        try {
+            if (zkClient.checkExists().forPath(path) != null) {
+                zkClient.setData().forPath(path, data);
+                log.info("The node already exists, update its data. The node is:[{}]", path);
+            } else {
+                zkClient.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path, data);
+                log.info("The node was created successfully. The node is:[{}]", path);
+            }
+            REGISTERED_PATH_SET.add(path);
+        } catch (Exception e) {
+            log.error("create persistent node for path [{}] fail", path);
+        }
+    }
+
+    /**
+     * Gets the data of a service address node
+     *
+     * @param rpcServiceName rpc service name eg:github.javaguide.HelloServicetest2version1
+     * @param serviceAddress child node of the service eg:127.0.0.1:9998
+     * @return node data, null if the node does not exist or has no data
+     */
+    public static String getNodeData(CuratorFramework zkClient, String rpcServiceName, String serviceAddress) {
+        String path = ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName + "/" + serviceAddress;
+        try {
+            byte[] data = zkClient.getData().forPath(path);
+            return data == null || data.length == 0 ? null : new String(data, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.error("get data for path [{}] fail", path);
+            return null;
+        }
+    }
+
     /**
      * Gets the children under a node
      *
@@ -17,17 +17,28 @@ public class RpcConstants {
     public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
     //version information
     public static final byte VERSION = 1;
-    public static final byte TOTAL_LENGTH = 16;
+    //magic(4) + version(1) + full length(4) + messageType(1) + codec(1) + compress(1) + requestId(8)
+    public static final byte TOTAL_LENGTH = 20;
     public static final byte REQUEST_TYPE = 1;
     public static final byte RESPONSE_TYPE = 2;
     //ping
     public static final byte HEARTBEAT_REQUEST_TYPE = 3;
     //pong
     public static final byte HEARTBEAT_RESPONSE_TYPE = 4;
-    public static final int HEAD_LENGTH = 16;
+    //连接建立后客户端发送，携带本端支持的序列化/压缩方式
+    public static final byte HANDSHAKE_REQUEST_TYPE = 5;
+    //服务端回复，携带服务端支持的序列化/压缩方式
+    public static final byte HANDSHAKE_RESPONSE_TYPE = 6;
+    //以方法id代替接口名、方法名等元数据的精简请求，见RpcCompactRequest
+    public static final byte COMPACT_REQUEST_TYPE = 7;
+    public static final int HEAD_LENGTH = 20;
     public static final String PING = "ping";
     public static final String PONG = "pong";
     public static final int MAX_FRAME_LENGTH = 8 * 1024 * 1024;
+    //header中compress字节的位置
+    public static final int COMPRESS_INDEX = 11;
+    //消息体小于该字节数时不压缩，可通过rpc.compress.threshold配置
+    public static final int DEFAULT_COMPRESS_THRESHOLD = 1024;
 
     //最大响应时间(s)
     public static final int MAX_RESPONSE_TIMEOUT = 60 * 5;
@@ -0,0 +1,24 @@
+package github.javaguide.remoting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+/**
+ * 精简请求：握手时服务端下发方法表后，客户端只发送方法id和参数，
+ * 接口名、方法名、参数类型、group、version由服务端按id还原
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Builder
+@ToString
+public class RpcCompactRequest implements Serializable {
+    private static final long serialVersionUID = 6374952812651346210L;
+    private int methodId;
+    private Object[] parameters;
+}
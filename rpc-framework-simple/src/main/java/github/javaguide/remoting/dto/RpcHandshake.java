@@ -0,0 +1,31 @@
+package github.javaguide.remoting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 连接建立时交换的握手消息：声明本端可用的序列化与压缩方式（扩展名）
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+@ToString
+public class RpcHandshake implements Serializable {
+    private static final long serialVersionUID = 3411580342577912937L;
+    private List<String> serializations;
+    private List<String> compressions;
+    /**
+     * 服务端的方法表，key: {@link RpcRequest#getMethodKey()}，value: 方法id；客户端发送的握手中为空
+     */
+    private Map<String, Integer> methodIds;
+}
@@ -19,7 +19,6 @@ import java.io.Serializable;
 @ToString
 public class RpcRequest implements Serializable {
     private static final long serialVersionUID = 1905122041950251207L;
-    private String requestId;
     private String interfaceName;
     private String methodName;
     private Object[] parameters;
@@ -32,4 +31,20 @@ public class RpcRequest implements Serializable {
     public String getRpcServiceName() {
         return this.getInterfaceName() + this.getGroup() + this.getVersion();
     }
+
+    /**
+     * 服务名+方法签名，用于在方法表中查找方法id
+     */
+    public String getMethodKey() {
+        StringBuilder sb = new StringBuilder(getRpcServiceName()).append('#').append(methodName).append('(');
+        if (paramTypes != null) {
+            for (int i = 0; i < paramTypes.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(paramTypes[i].getName());
+            }
+        }
+        return sb.append(')').toString();
+    }
 }
@@ -4,27 +4,25 @@ import com.github.houbb.sisyphus.core.core.RetryWaiter;
 import com.github.houbb.sisyphus.core.core.Retryer;
 import com.github.houbb.sisyphus.core.support.condition.RetryConditions;
 import com.github.houbb.sisyphus.core.support.wait.FixedRetryWait;
+import github.javaguide.config.RpcConfig;
 import github.javaguide.config.RpcServiceConfig;
-import github.javaguide.enums.CompressTypeEnum;
-import github.javaguide.enums.SerializationTypeEnum;
-import github.javaguide.enums.ServiceDiscoveryEnum;
-import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.factory.SingletonFactory;
-import github.javaguide.registry.ServiceDiscovery;
-import github.javaguide.remoting.constants.RpcConstants;
-import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
-import github.javaguide.remoting.transport.netty.client.ChannelProvider;
-import github.javaguide.remoting.transport.netty.client.ClientUnprocessedRequests;
 import github.javaguide.remoting.transport.netty.client.NettyRpcClient;
-import io.netty.channel.Channel;
-import io.netty.channel.ChannelFuture;
+import github.javaguide.utils.RuntimeUtil;
+import github.javaguide.utils.concurrent.VirtualThreads;
+import github.javaguide.utils.concurrent.threadpool.CustomThreadPoolConfig;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
 import lombok.extern.slf4j.Slf4j;
 
-import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 功能描述
@@ -35,17 +33,17 @@ import java.util.concurrent.CompletableFuture;
  */
 @Slf4j
 public class FailOverTolerantStrategy implements TolerantStrategy{
+    /**
+     * 异步重试总是交给单独的线程执行：rpc.virtual.threads=true 时使用虚拟线程，否则使用一个小的共享线程池。
+     * 上一次尝试可能是在IO线程或超时定时器线程上失败的，重试需要查询注册中心、发送时还可能因背压阻塞，不能在这些线程上直接执行
+     */
+    private static final int RETRY_QUEUE_CAPACITY = 1024;
+    private static final Executor RETRY_EXECUTOR = retryExecutor();
 
     private final NettyRpcClient nettyRpcClient;
-    private final ServiceDiscovery serviceDiscovery;
-    private final ClientUnprocessedRequests clientUnprocessedRequests;
-    private final ChannelProvider channelProvider;
 
     public FailOverTolerantStrategy() {
-        this.clientUnprocessedRequests = SingletonFactory.getInstance(ClientUnprocessedRequests.class);
         this.nettyRpcClient = SingletonFactory.getInstance(NettyRpcClient.class);
-        this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(ServiceDiscoveryEnum.ZK.getName());
-        this.channelProvider = SingletonFactory.getInstance(ChannelProvider.class);
     }
 
     /**
@@ -57,10 +55,6 @@ public class FailOverTolerantStrategy implements TolerantStrategy{
      */
     @Override
     public RpcResponse doTolerant(RpcRequest rpcRequest, RpcServiceConfig rpcServiceConfig) {
-        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
-        // 将这个future放到unprocessed request中，用于再次接受消息后唤醒请求体
-        clientUnprocessedRequests.put(rpcRequest.getRequestId(), resultFuture);
-
         //---------增加在timeout内重试maxAttemptCnt次直到成功或者最终失败-----------
         RpcResponse<Object> rpcResponse = Retryer.<RpcResponse<Object>>newInstance()
                 .maxAttempt(rpcServiceConfig.getMaxAttemptCnt()) //最大尝试次数
@@ -74,32 +68,63 @@ public class FailOverTolerantStrategy implements TolerantStrategy{
                         //剩余重试次数
                         // build return value
                         // get server address（负载均衡查找到提供指定服务的服务器） ----对于容错策略：若服务器失败，则查询一个新的
-                        InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
-                        // get  server address related channel
-                        Channel channel = nettyRpcClient.getChannel(inetSocketAddress);
-                        if (channel.isActive()) {
-                            //---------------rpcRequest->rpcMessage,因为rpc两端是通过rpcMessage格式的消息传播的------------------
-                            RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
-                                    .codec(SerializationTypeEnum.HESSIAN.getCode())
-                                    .compress(CompressTypeEnum.GZIP.getCode())
-                                    .messageType(RpcConstants.REQUEST_TYPE).build();
-
-                            //ChannelFuture 对象表示了这个操作的异步结果
-                            ChannelFuture channelFuture = channel.writeAndFlush(rpcMessage);
-                            //阻塞channelFuture，直到改操作完成
-                            channelFuture.awaitUninterruptibly();
-                            if (channelFuture.isSuccess()) {
-                                log.info("client send message: [{}]", rpcMessage);
-                            }else{
-                                log.error("Send failed:", channelFuture.cause());
-                                throw new RuntimeException("rpc message send fail",channelFuture.cause());
-                            }
-                        } else {
-                            throw new IllegalStateException();
-                        }
+                        // 发送不再阻塞等待写结果，写失败或超时时resultFuture会被异常唤醒，由Retry框架捕获并重试
+                        CompletableFuture<RpcResponse<Object>> resultFuture = nettyRpcClient.sendRpcRequest(rpcRequest, rpcServiceConfig);
                         return resultFuture.get();
                     }
                 }).retryCall();
         return rpcResponse;
     }
+
+    /**
+     * 异步失败转移：某次调用失败后重新负载均衡并再次发送，直到成功或用完maxAttemptCnt次尝试
+     */
+    @Override
+    public CompletableFuture<RpcResponse<Object>> doTolerantAsync(RpcRequest rpcRequest, RpcServiceConfig rpcServiceConfig) {
+        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+        attemptAsync(rpcRequest, rpcServiceConfig, Math.max(rpcServiceConfig.getMaxAttemptCnt(), 1), resultFuture);
+        return resultFuture;
+    }
+
+    private void attemptAsync(RpcRequest rpcRequest, RpcServiceConfig rpcServiceConfig, int remainingAttempts, CompletableFuture<RpcResponse<Object>> resultFuture) {
+        CompletableFuture<RpcResponse<Object>> attemptFuture;
+        try {
+            attemptFuture = nettyRpcClient.sendRpcRequest(rpcRequest, rpcServiceConfig);
+        } catch (Exception e) {
+            attemptFuture = new CompletableFuture<>();
+            attemptFuture.completeExceptionally(e);
+        }
+        attemptFuture.whenComplete((rpcResponse, throwable) -> {
+            if (throwable == null) {
+                resultFuture.complete(rpcResponse);
+            } else if (remainingAttempts > 1) {
+                log.warn("async invoke failed, retry [{}] more times", remainingAttempts - 1, throwable);
+                try {
+                    RETRY_EXECUTOR.execute(() -> attemptAsync(rpcRequest, rpcServiceConfig, remainingAttempts - 1, resultFuture));
+                } catch (RejectedExecutionException e) {
+                    log.warn("retry executor is full, give up retrying");
+                    resultFuture.completeExceptionally(throwable);
+                }
+            } else {
+                resultFuture.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    private static Executor retryExecutor() {
+        if (RpcConfig.getBoolean(RpcConfigEnum.VIRTUAL_THREADS, false)) {
+            if (VirtualThreads.isAvailable()) {
+                ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("rpc-client-retry");
+                ThreadPoolFactoryUtil.registerThreadPool("rpc-client-retry", executor);
+                return executor;
+            }
+            log.warn("rpc.virtual.threads is enabled but virtual threads are not available on java [{}]", System.getProperty("java.version"));
+        }
+        int threads = RuntimeUtil.cpus();
+        CustomThreadPoolConfig customThreadPoolConfig = new CustomThreadPoolConfig();
+        customThreadPoolConfig.setCorePoolSize(threads);
+        customThreadPoolConfig.setMaximumPoolSize(threads);
+        customThreadPoolConfig.setWorkQueue(new ArrayBlockingQueue<>(RETRY_QUEUE_CAPACITY));
+        return ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent(customThreadPoolConfig, "rpc-client-retry", true);
+    }
 }
@@ -4,10 +4,19 @@ import github.javaguide.config.RpcServiceConfig;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface TolerantStrategy {
     /**
      * 容错
      * @return
      */
     RpcResponse doTolerant(RpcRequest rpcRequest, RpcServiceConfig rpcServiceConfig);
+
+    /**
+     * 异步容错：不阻塞调用线程，供返回值为 CompletableFuture 的远程方法使用
+     *
+     * @return 响应的future，所有尝试都失败时异常完成
+     */
+    CompletableFuture<RpcResponse<Object>> doTolerantAsync(RpcRequest rpcRequest, RpcServiceConfig rpcServiceConfig);
 }
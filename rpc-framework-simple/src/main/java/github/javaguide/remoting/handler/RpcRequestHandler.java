@@ -2,6 +2,7 @@ package github.javaguide.remoting.handler;
 
 import github.javaguide.exception.RpcException;
 import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.MethodTable;
 import github.javaguide.provider.ServiceProvider;
 import github.javaguide.provider.impl.ZkServiceProviderImpl;
 import github.javaguide.remoting.constants.RpcConstants;
@@ -9,8 +10,11 @@ import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.transport.netty.client.ClientUnprocessedRequests;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * RpcRequest processor
@@ -22,9 +26,11 @@ import java.lang.reflect.Method;
 public class RpcRequestHandler {
     private final ServiceProvider serviceProvider;
     private final ServerUnprocessedRequests serverUnprocessedRequests;
+    private final MethodTable methodTable;
 
     public RpcRequestHandler() {
         serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+        methodTable = SingletonFactory.getInstance(MethodTable.class);
         serverUnprocessedRequests = SingletonFactory.getInstance(ServerUnprocessedRequests.class);
     }
 
@@ -32,12 +38,68 @@ public class RpcRequestHandler {
      * Processing rpcRequest: call the corresponding method, and then return the method
      */
     public Object handle(RpcRequest rpcRequest) {
+        return handle(rpcRequest, methodTable.methodId(rpcRequest));
+    }
+
+    /**
+     * @param methodId id of the method in {@link MethodTable}, -1 if unknown
+     */
+    private Object handle(RpcRequest rpcRequest, int methodId) {
+        MethodHandle invoker = methodTable.invoker(methodId);
+        if (invoker != null) {
+            return invokeTargetMethod(rpcRequest, invoker);
+        }
         Object service = serviceProvider.getService(rpcRequest.getRpcServiceName());
         return invokeTargetMethod(rpcRequest, service);
     }
 
+    /**
+     * Processing rpcRequest asynchronously: if the target method returns a {@link CompletionStage},
+     * the returned future completes when the service's own future completes, otherwise it is already completed.
+     * Invocation exceptions complete the future exceptionally instead of being thrown.
+     */
+    public CompletableFuture<Object> handleAsync(RpcRequest rpcRequest) {
+        return handleAsync(rpcRequest, methodTable.methodId(rpcRequest));
+    }
+
+    /**
+     * Same as {@link #handleAsync(RpcRequest)}, for requests whose method id is already known,
+     * e.g. those rebuilt from an {@link github.javaguide.remoting.dto.RpcCompactRequest}
+     */
+    public CompletableFuture<Object> handleAsync(RpcRequest rpcRequest, int methodId) {
+        Object result;
+        try {
+            result = handle(rpcRequest, methodId);
+        } catch (Exception e) {
+            CompletableFuture<Object> failedFuture = new CompletableFuture<>();
+            failedFuture.completeExceptionally(e);
+            return failedFuture;
+        }
+        if (result instanceof CompletionStage) {
+            @SuppressWarnings("unchecked")
+            CompletionStage<Object> stage = (CompletionStage<Object>) result;
+            return stage.toCompletableFuture();
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    /**
+     * 通过方法表中预先绑定到服务对象的方法句柄调用
+     */
+    private Object invokeTargetMethod(RpcRequest rpcRequest, MethodHandle invoker) {
+        Object result;
+        try {
+            result = invoker.invokeExact(rpcRequest.getParameters());
+            log.info("service:[{}] successful invoke method:[{}]", rpcRequest.getInterfaceName(), rpcRequest.getMethodName());
+        } catch (Throwable e) {
+            throw new RpcException(e.getMessage(), e);
+        }
+        return result;
+    }
+
     /**
      * get method execution results
+     * 方法未在方法表中登记时的反射调用
      * 2024.6.27 gusang：增加超时返回异常
      *
      * @param rpcRequest client request
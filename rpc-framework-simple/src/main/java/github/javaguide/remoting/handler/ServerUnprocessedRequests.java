@@ -1,10 +1,9 @@
 package github.javaguide.remoting.handler;
 
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.netty.StripedLongObjectMap;
 
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * unprocessed requests by the server.
@@ -13,14 +12,15 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ServerUnprocessedRequests {
     //用于客户端重试同一请求时，服务器端保存该请求至map，并通过CompletableFuture判断是否执行完毕
     //如：客户端发送第一次请求（requestIDx），超过重试间隔时间后发送第二次请求（requestIDx），服务器端收到第二次请求后，该请求若存在于map，并且该future
-    private static final Map<String, CompletableFuture<RpcResponse<Object>>> UNPROCESSED_RESPONSE_FUTURES = new ConcurrentHashMap<>();
+    //key为协议头中的8字节requestId
+    private static final StripedLongObjectMap<CompletableFuture<RpcResponse<Object>>> UNPROCESSED_RESPONSE_FUTURES = new StripedLongObjectMap<>();
 
-    public void put(String requestId, CompletableFuture<RpcResponse<Object>> future) {
+    public void put(long requestId, CompletableFuture<RpcResponse<Object>> future) {
         UNPROCESSED_RESPONSE_FUTURES.put(requestId, future);
     }
 
-    public void complete(RpcResponse<Object> rpcResponse) {
-        CompletableFuture<RpcResponse<Object>> future = UNPROCESSED_RESPONSE_FUTURES.remove(rpcResponse.getRequestId());
+    public void complete(long requestId, RpcResponse<Object> rpcResponse) {
+        CompletableFuture<RpcResponse<Object>> future = UNPROCESSED_RESPONSE_FUTURES.remove(requestId);
         if (null != future) {
             //会唤醒客户端的rpcResponse = future.get()
             future.complete(rpcResponse);
@@ -0,0 +1,30 @@
+package github.javaguide.remoting.transport.netty;
+
+import github.javaguide.config.RpcConfig;
+import github.javaguide.enums.RpcConfigEnum;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+/**
+ * 可选的flush合并：开启后各处的writeAndFlush只在读循环结束时、或每个event loop任务轮次结束时真正flush一次，
+ * 连续flush达到上限时立即flush，小消息高QPS下减少write系统调用。
+ * 通过 rpc.flush.consolidation=true 开启，客户端与服务端共用
+ */
+public final class FlushConsolidation {
+    private static final boolean ENABLED = RpcConfig.getBoolean(RpcConfigEnum.FLUSH_CONSOLIDATION, false);
+    private static final int EXPLICIT_FLUSH_AFTER_FLUSHES = RpcConfig.getInt(RpcConfigEnum.FLUSH_CONSOLIDATION_MAX_FLUSHES,
+            FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES);
+
+    private FlushConsolidation() {
+    }
+
+    /**
+     * 需要放在pipeline的最前面，才能拦截到后面所有handler发出的flush
+     */
+    public static void addFirst(ChannelPipeline pipeline) {
+        if (ENABLED) {
+            // 没有读操作进行中时（如客户端在业务线程上发送请求）也合并，flush安排到event loop的下一个任务中
+            pipeline.addFirst(new FlushConsolidationHandler(EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+        }
+    }
+}
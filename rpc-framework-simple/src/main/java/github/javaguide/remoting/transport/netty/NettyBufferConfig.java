@@ -0,0 +1,161 @@
+package github.javaguide.remoting.transport.netty;
+
+import github.javaguide.config.RpcConfig;
+import github.javaguide.enums.BufferAllocatorEnum;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.WriteBufferWaterMark;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 客户端与服务端连接上与缓冲区相关的选项，从 rpc.properties 读取：
+ * ByteBuf分配方式、自适应接收缓冲区、写缓冲区高低水位以及 SO_SNDBUF/SO_RCVBUF。
+ * 默认使用池化的堆外内存；接收缓冲区按每个连接上实际读到的字节数在min与max之间调整，
+ * 传输接近 {@link RpcConstants#MAX_FRAME_LENGTH} 的大消息时一次读取最多可读到max字节，而不是netty默认的64KB
+ */
+@Slf4j
+@Getter
+@ToString
+public final class NettyBufferConfig {
+    public static final int DEFAULT_RECV_BUFFER_MIN = 64;
+    public static final int DEFAULT_RECV_BUFFER_INITIAL = 1024;
+    public static final int DEFAULT_RECV_BUFFER_MAX = 1024 * 1024;
+    public static final int DEFAULT_WRITE_BUFFER_LOW_WATER_MARK = 1024 * 1024;
+    public static final int DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK = 4 * 1024 * 1024;
+    private static final NettyBufferConfig INSTANCE = fromRpcConfig();
+
+    private final BufferAllocatorEnum allocatorType;
+    private final boolean preferDirect;
+    private final int recvBufferMin;
+    private final int recvBufferInitial;
+    private final int recvBufferMax;
+    private final int writeBufferLowWaterMark;
+    private final int writeBufferHighWaterMark;
+    /**
+     * 0表示不设置，由操作系统自动调整
+     */
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+    /**
+     * 同一配置下的所有bootstrap共用一个allocator，池化时不会重复创建arena
+     */
+    @ToString.Exclude
+    private final ByteBufAllocator allocator;
+
+    private NettyBufferConfig(BufferAllocatorEnum allocatorType, boolean preferDirect,
+                              int recvBufferMin, int recvBufferInitial, int recvBufferMax,
+                              int writeBufferLowWaterMark, int writeBufferHighWaterMark,
+                              int sendBufferSize, int receiveBufferSize) {
+        this.allocatorType = allocatorType;
+        this.preferDirect = preferDirect;
+        this.recvBufferMin = recvBufferMin;
+        this.recvBufferInitial = recvBufferInitial;
+        this.recvBufferMax = recvBufferMax;
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+        this.allocator = newAllocator(allocatorType, preferDirect);
+    }
+
+    public static NettyBufferConfig getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 读取当前的配置，不合法的取值记录告警后使用默认值
+     */
+    static NettyBufferConfig fromRpcConfig() {
+        BufferAllocatorEnum allocatorType = BufferAllocatorEnum.of(RpcConfig.getString(RpcConfigEnum.BUFFER_ALLOCATOR, null));
+        boolean preferDirect = RpcConfig.getBoolean(RpcConfigEnum.BUFFER_PREFER_DIRECT, true);
+        int recvMin = RpcConfig.getInt(RpcConfigEnum.RECV_BUFFER_MIN, DEFAULT_RECV_BUFFER_MIN);
+        int recvInitial = RpcConfig.getInt(RpcConfigEnum.RECV_BUFFER_INITIAL, DEFAULT_RECV_BUFFER_INITIAL);
+        int recvMax = RpcConfig.getInt(RpcConfigEnum.RECV_BUFFER_MAX, DEFAULT_RECV_BUFFER_MAX);
+        if (recvMin <= 0 || recvInitial < recvMin || recvMax < recvInitial) {
+            log.warn("invalid receive buffer sizes min [{}] initial [{}] max [{}], use default", recvMin, recvInitial, recvMax);
+            recvMin = DEFAULT_RECV_BUFFER_MIN;
+            recvInitial = DEFAULT_RECV_BUFFER_INITIAL;
+            recvMax = DEFAULT_RECV_BUFFER_MAX;
+        }
+        // 单次读取超过最大帧长度没有意义
+        recvMax = Math.min(recvMax, RpcConstants.MAX_FRAME_LENGTH);
+        recvInitial = Math.min(recvInitial, recvMax);
+        recvMin = Math.min(recvMin, recvInitial);
+        int low = RpcConfig.getInt(RpcConfigEnum.WRITE_BUFFER_LOW_WATER_MARK, DEFAULT_WRITE_BUFFER_LOW_WATER_MARK);
+        int high = RpcConfig.getInt(RpcConfigEnum.WRITE_BUFFER_HIGH_WATER_MARK, DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK);
+        if (low < 0 || high < low) {
+            log.warn("invalid write buffer water mark low [{}] high [{}], use default", low, high);
+            low = DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+            high = DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+        }
+        int sendBufferSize = Math.max(0, RpcConfig.getInt(RpcConfigEnum.SOCKET_SNDBUF, 0));
+        int receiveBufferSize = Math.max(0, RpcConfig.getInt(RpcConfigEnum.SOCKET_RCVBUF, 0));
+        return new NettyBufferConfig(allocatorType, preferDirect, recvMin, recvInitial, recvMax,
+                low, high, sendBufferSize, receiveBufferSize);
+    }
+
+    private static ByteBufAllocator newAllocator(BufferAllocatorEnum allocatorType, boolean preferDirect) {
+        if (allocatorType == BufferAllocatorEnum.UNPOOLED) {
+            return new UnpooledByteBufAllocator(preferDirect);
+        }
+        // 与netty默认的池化allocator一致时直接复用，避免另外创建一套arena
+        if (preferDirect == PooledByteBufAllocator.defaultPreferDirect()) {
+            return PooledByteBufAllocator.DEFAULT;
+        }
+        return new PooledByteBufAllocator(preferDirect);
+    }
+
+    /**
+     * 每个channel持有自己的Handle，接收缓冲区大小按该连接最近的读取量调整
+     */
+    public RecvByteBufAllocator recvByteBufAllocator() {
+        return new AdaptiveRecvByteBufAllocator(recvBufferMin, recvBufferInitial, recvBufferMax);
+    }
+
+    public WriteBufferWaterMark writeBufferWaterMark() {
+        return new WriteBufferWaterMark(writeBufferLowWaterMark, writeBufferHighWaterMark);
+    }
+
+    /**
+     * 设置客户端连接（TCP与unix domain socket）的缓冲区选项
+     */
+    public void configure(Bootstrap bootstrap) {
+        bootstrap.option(ChannelOption.ALLOCATOR, allocator)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, recvByteBufAllocator())
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark());
+        if (sendBufferSize > 0) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            // 需要在connect之前设置，TCP窗口扩大因子在握手时确定
+            bootstrap.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+        }
+    }
+
+    /**
+     * 设置服务端接受的连接的缓冲区选项
+     */
+    public void configure(ServerBootstrap serverBootstrap) {
+        serverBootstrap.option(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.RCVBUF_ALLOCATOR, recvByteBufAllocator())
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark());
+        if (sendBufferSize > 0) {
+            serverBootstrap.childOption(ChannelOption.SO_SNDBUF, sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            // 接受的连接继承监听socket的SO_RCVBUF，要让TCP窗口超过64KB必须在listen之前设置
+            serverBootstrap.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+        }
+    }
+}
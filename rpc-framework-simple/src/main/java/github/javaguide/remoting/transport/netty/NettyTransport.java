@@ -0,0 +1,175 @@
+package github.javaguide.remoting.transport.netty;
+
+import github.javaguide.config.RpcConfig;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.TransportTypeEnum;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 客户端与服务端使用的IO传输实现，通过 rpc.transport 选择。
+ * 期望的实现在当前平台不可用时依次退回到 epoll、nio；io_uring 需要另外引入 netty-incubator-transport-io_uring，通过反射加载
+ */
+@Slf4j
+public final class NettyTransport {
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+    private static final TransportTypeEnum TYPE = resolve(TransportTypeEnum.of(RpcConfig.getString(RpcConfigEnum.TRANSPORT, null)));
+    private static final boolean TCP_QUICKACK = RpcConfig.getBoolean(RpcConfigEnum.TCP_QUICKACK, false);
+
+    private NettyTransport() {
+    }
+
+    public static TransportTypeEnum type() {
+        return TYPE;
+    }
+
+    /**
+     * @param threads 线程数，0表示使用netty默认值（cpu核数*2）
+     * @param name    线程名前缀
+     */
+    public static EventLoopGroup newEventLoopGroup(int threads, String name) {
+        ThreadFactory threadFactory = new DefaultThreadFactory(name);
+        switch (TYPE) {
+            case IO_URING:
+                return newInstance(ioUringClass("IOUringEventLoopGroup"), threads, threadFactory);
+            case EPOLL:
+                return new EpollEventLoopGroup(threads, threadFactory);
+            default:
+                return new NioEventLoopGroup(threads, threadFactory);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Class<? extends SocketChannel> socketChannelClass() {
+        switch (TYPE) {
+            case IO_URING:
+                return (Class<? extends SocketChannel>) ioUringClass("IOUringSocketChannel");
+            case EPOLL:
+                return EpollSocketChannel.class;
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Class<? extends ServerSocketChannel> serverSocketChannelClass() {
+        switch (TYPE) {
+            case IO_URING:
+                return (Class<? extends ServerSocketChannel>) ioUringClass("IOUringServerSocketChannel");
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    /**
+     * 是否可以用 SO_REUSEPORT 让多个acceptor监听同一端口，目前只有epoll支持
+     */
+    public static boolean supportsReusePort() {
+        return TYPE == TransportTypeEnum.EPOLL;
+    }
+
+    /**
+     * unix domain socket 目前只支持epoll，与 rpc.transport 无关
+     */
+    public static boolean supportsDomainSocket() {
+        return Epoll.isAvailable();
+    }
+
+    /**
+     * 用于unix domain socket的事件循环组：当前传输为epoll时与TCP共用，否则需要单独创建
+     */
+    public static EventLoopGroup newDomainSocketEventLoopGroup(int threads, String name) {
+        return new EpollEventLoopGroup(threads, new DefaultThreadFactory(name));
+    }
+
+    public static Class<? extends Channel> domainSocketChannelClass() {
+        return EpollDomainSocketChannel.class;
+    }
+
+    public static Class<? extends ServerChannel> serverDomainSocketChannelClass() {
+        return EpollServerDomainSocketChannel.class;
+    }
+
+    /**
+     * 设置客户端连接上的传输相关选项
+     */
+    public static void configure(Bootstrap bootstrap) {
+        if (TCP_QUICKACK && TYPE == TransportTypeEnum.EPOLL) {
+            bootstrap.option(EpollChannelOption.TCP_QUICKACK, true);
+        }
+    }
+
+    /**
+     * 设置服务端接受的连接上的传输相关选项
+     */
+    public static void configure(ServerBootstrap serverBootstrap) {
+        if (TCP_QUICKACK && TYPE == TransportTypeEnum.EPOLL) {
+            serverBootstrap.childOption(EpollChannelOption.TCP_QUICKACK, true);
+        }
+    }
+
+    private static TransportTypeEnum resolve(TransportTypeEnum expected) {
+        if (expected == TransportTypeEnum.IO_URING) {
+            if (isIoUringAvailable()) {
+                return TransportTypeEnum.IO_URING;
+            }
+            log.warn("io_uring transport is not available, fall back to epoll");
+            expected = TransportTypeEnum.EPOLL;
+        }
+        if (expected == TransportTypeEnum.EPOLL) {
+            if (Epoll.isAvailable()) {
+                return TransportTypeEnum.EPOLL;
+            }
+            log.warn("epoll transport is not available, fall back to nio", Epoll.unavailabilityCause());
+        }
+        return TransportTypeEnum.NIO;
+    }
+
+    private static boolean isIoUringAvailable() {
+        try {
+            return (Boolean) ioUringClass("IOUring").getMethod("isAvailable").invoke(null);
+        } catch (Throwable e) {
+            log.debug("io_uring is not available", e);
+            return false;
+        }
+    }
+
+    private static Class<?> ioUringClass(String simpleName) {
+        try {
+            return Class.forName(IO_URING_PACKAGE + simpleName, true, NettyTransport.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("io_uring transport is not on the classpath", e);
+        }
+    }
+
+    private static EventLoopGroup newInstance(Class<?> groupClass, int threads, ThreadFactory threadFactory) {
+        try {
+            Constructor<?> constructor = groupClass.getConstructor(int.class, ThreadFactory.class);
+            return (EventLoopGroup) constructor.newInstance(threads, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("can not create " + groupClass.getName(), e);
+        }
+    }
+}
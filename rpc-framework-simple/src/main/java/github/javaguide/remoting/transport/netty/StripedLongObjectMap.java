@@ -0,0 +1,93 @@
+package github.javaguide.remoting.transport.netty;
+
+import io.netty.util.collection.LongObjectHashMap;
+
+/**
+ * 以 long 为 key 的并发 map：按 key 分段，每段是一个 Netty 的开放寻址 {@link LongObjectHashMap}，由各自的锁保护。
+ * key 不装箱、不产生链表节点，适合按协议头中 8 字节 requestId 关联请求与响应的热点路径。
+ *
+ * @param <V> value type
+ */
+public final class StripedLongObjectMap<V> {
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final LongObjectHashMap<V>[] stripes;
+    private final int mask;
+
+    public StripedLongObjectMap() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripeCount number of stripes, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLongObjectMap(int stripeCount) {
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        stripes = new LongObjectHashMap[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new LongObjectHashMap<>();
+        }
+        mask = size - 1;
+    }
+
+    public V put(long key, V value) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.put(key, value);
+        }
+    }
+
+    public V get(long key) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    public V remove(long key) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+
+    /**
+     * remove the entry only if it is currently mapped to the given value
+     *
+     * @return true if the entry was removed
+     */
+    public boolean remove(long key, V value) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            if (stripe.get(key) != value) {
+                return false;
+            }
+            stripe.remove(key);
+            return true;
+        }
+    }
+
+    /**
+     * 各段大小之和，并发修改时只是近似值
+     */
+    public int size() {
+        int size = 0;
+        for (LongObjectHashMap<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private LongObjectHashMap<V> stripeFor(long key) {
+        // requestId 是递增序列，混合高低位后取模，使相邻的 id 落在不同段上
+        int h = (int) (key ^ (key >>> 32));
+        h ^= h >>> 16;
+        return stripes[h & mask];
+    }
+}
@@ -0,0 +1,231 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.enums.ConnectionSelectEnum;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 到同一服务端地址的一组连接。
+ * 每个槽位同一时刻最多只有一次建立连接的操作，并发获取时共享同一个future；连接断开后在后台按指数退避重连
+ */
+@Slf4j
+final class ChannelPool {
+    /**
+     * 连接上等待响应的请求数，用于leastpending选择
+     */
+    private static final AttributeKey<AtomicInteger> PENDING = AttributeKey.valueOf("rpc.client.pending");
+    private static final long INITIAL_RECONNECT_DELAY_MILLIS = 200;
+    /**
+     * 后台重连的最大次数，之后只在下一次获取连接时再尝试，避免对已下线的服务端无限重连
+     */
+    private static final int MAX_RECONNECT_ATTEMPTS = 5;
+
+    private final SocketAddress address;
+    private final Function<SocketAddress, ChannelFuture> connector;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile Slot[] slots = new Slot[0];
+    private volatile boolean closed;
+
+    ChannelPool(SocketAddress address, Function<SocketAddress, ChannelFuture> connector) {
+        this.address = address;
+        this.connector = connector;
+    }
+
+    /**
+     * 从前size个连接中选择一个，连接尚未建立时返回建立中的future。
+     * 不同服务要求的连接数不同时共用同一组连接，槽位数取其中的最大值
+     */
+    CompletableFuture<Channel> acquire(int size, ConnectionSelectEnum select) {
+        Slot[] slots = ensureCapacity(size);
+        if (select == ConnectionSelectEnum.LEAST_PENDING) {
+            Slot slot = leastPending(slots, size);
+            if (slot != null) {
+                return slot.acquire();
+            }
+        }
+        return slots[Math.floorMod(next.getAndIncrement(), size)].acquire();
+    }
+
+    /**
+     * 任意一个可用的连接，没有时返回null
+     */
+    Channel activeChannel() {
+        for (Slot slot : slots) {
+            Channel channel = slot.channel;
+            if (channel != null && channel.isActive()) {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    void close() {
+        closed = true;
+        for (Slot slot : slots) {
+            Channel channel = slot.channel;
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * 记录请求发出，future完成（收到响应、超时或写失败）时计数减一
+     */
+    static void pending(Channel channel, CompletableFuture<?> future) {
+        AtomicInteger pending = channel.attr(PENDING).get();
+        if (pending != null) {
+            pending.incrementAndGet();
+            future.whenComplete((r, t) -> pending.decrementAndGet());
+        }
+    }
+
+    static int pendingCount(Channel channel) {
+        AtomicInteger pending = channel.attr(PENDING).get();
+        return pending == null ? 0 : pending.get();
+    }
+
+    private Slot[] ensureCapacity(int size) {
+        Slot[] current = slots;
+        if (current.length >= size) {
+            return current;
+        }
+        synchronized (this) {
+            current = slots;
+            if (current.length < size) {
+                Slot[] grown = Arrays.copyOf(current, size);
+                for (int i = current.length; i < size; i++) {
+                    grown[i] = new Slot();
+                }
+                slots = grown;
+                current = grown;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 可用连接中pending最少的一个；未建立的连接同时在后台开始建立，都不可用时返回null
+     */
+    private Slot leastPending(Slot[] slots, int size) {
+        Slot best = null;
+        int bestPending = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Slot slot = slots[i];
+            Channel channel = slot.channel;
+            if (channel == null || !channel.isActive()) {
+                slot.acquire();
+                continue;
+            }
+            int pending = pendingCount(channel);
+            if (pending < bestPending) {
+                best = slot;
+                bestPending = pending;
+            }
+        }
+        return best;
+    }
+
+    private final class Slot {
+        private volatile Channel channel;
+        /**
+         * 正在进行的建立连接操作，受this保护
+         */
+        private CompletableFuture<Channel> connecting;
+        private int reconnectAttempts;
+
+        CompletableFuture<Channel> acquire() {
+            Channel current = channel;
+            if (current != null && current.isActive()) {
+                return CompletableFuture.completedFuture(current);
+            }
+            synchronized (this) {
+                current = channel;
+                if (current != null && current.isActive()) {
+                    return CompletableFuture.completedFuture(current);
+                }
+                if (connecting == null) {
+                    connecting = connect();
+                }
+                return connecting;
+            }
+        }
+
+        private CompletableFuture<Channel> connect() {
+            CompletableFuture<Channel> future = new CompletableFuture<>();
+            connector.apply(address).addListener((ChannelFutureListener) f -> {
+                if (f.isSuccess()) {
+                    Channel ch = f.channel();
+                    ch.attr(PENDING).set(new AtomicInteger());
+                    ch.closeFuture().addListener(cf -> onClosed(ch));
+                    synchronized (Slot.this) {
+                        channel = ch;
+                        connecting = null;
+                        reconnectAttempts = 0;
+                    }
+                    if (closed) {
+                        ch.close();
+                    }
+                    future.complete(ch);
+                } else {
+                    synchronized (Slot.this) {
+                        connecting = null;
+                    }
+                    future.completeExceptionally(f.cause());
+                }
+            });
+            return future;
+        }
+
+        private void onClosed(Channel ch) {
+            if (closed || channel != ch) {
+                return;
+            }
+            log.info("connection to [{}] closed, reconnect in background", address);
+            scheduleReconnect(ch);
+        }
+
+        private void scheduleReconnect(Channel ch) {
+            int attempt;
+            synchronized (this) {
+                if (reconnectAttempts >= MAX_RECONNECT_ATTEMPTS) {
+                    log.warn("give up reconnecting to [{}] after [{}] attempts", address, reconnectAttempts);
+                    return;
+                }
+                attempt = reconnectAttempts++;
+            }
+            try {
+                ch.eventLoop().schedule(this::reconnect, INITIAL_RECONNECT_DELAY_MILLIS << attempt, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 客户端正在关闭
+                log.debug("skip reconnecting to [{}]", address);
+            }
+        }
+
+        private void reconnect() {
+            if (closed) {
+                return;
+            }
+            acquire().whenComplete((ch, throwable) -> {
+                if (throwable != null) {
+                    log.warn("reconnect to [{}] failed", address, throwable);
+                    Channel last = channel;
+                    if (last != null && !closed) {
+                        scheduleReconnect(last);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package github.javaguide.remoting.transport.netty.client;
 
+import github.javaguide.enums.ConnectionSelectEnum;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import lombok.extern.slf4j.Slf4j;
 
-import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * store and get Channel object
+ * 每个服务端地址对应一个 {@link ChannelPool}，可以同时维护多个连接
  *
  * @author shuang.kou
  * @createTime 2020年05月29日 16:36:00
@@ -16,36 +21,47 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class ChannelProvider {
 
-    private final Map<String, Channel> channelMap;
+    private final Map<String, ChannelPool> channelPoolMap;
+    private final Function<SocketAddress, ChannelFuture> connector;
 
-    public ChannelProvider() {
-        channelMap = new ConcurrentHashMap<>();
+    /**
+     * @param connector 发起到指定地址的连接
+     */
+    public ChannelProvider(Function<SocketAddress, ChannelFuture> connector) {
+        this.channelPoolMap = new ConcurrentHashMap<>();
+        this.connector = connector;
     }
 
-    public Channel get(InetSocketAddress inetSocketAddress) {
-        String key = inetSocketAddress.toString();
-        // determine if there is a connection for the corresponding address
-        if (channelMap.containsKey(key)) {
-            Channel channel = channelMap.get(key);
-            // if so, determine if the connection is available, and if so, get it directly
-            if (channel != null && channel.isActive()) {
-                return channel;
-            } else {
-                //惰性删除
-                channelMap.remove(key);
-            }
-        }
-        return null;
+    /**
+     * 获取到指定地址的一个连接，连接未建立时异步建立
+     *
+     * @param connections 到该地址的连接数
+     * @param select      多个连接时的选择方式
+     */
+    public CompletableFuture<Channel> acquire(SocketAddress socketAddress, int connections, ConnectionSelectEnum select) {
+        ChannelPool channelPool = channelPoolMap.computeIfAbsent(socketAddress.toString(),
+                key -> new ChannelPool(socketAddress, connector));
+        return channelPool.acquire(Math.max(connections, 1), select);
+    }
+
+    /**
+     * 任意一个到该地址的可用连接，没有时返回null
+     */
+    public Channel get(SocketAddress socketAddress) {
+        ChannelPool channelPool = channelPoolMap.get(socketAddress.toString());
+        return channelPool == null ? null : channelPool.activeChannel();
     }
 
-    public void set(InetSocketAddress inetSocketAddress, Channel channel) {
-        String key = inetSocketAddress.toString();
-        channelMap.put(key, channel);
+    public void remove(SocketAddress socketAddress) {
+        ChannelPool channelPool = channelPoolMap.remove(socketAddress.toString());
+        if (channelPool != null) {
+            channelPool.close();
+        }
+        log.info("Channel map size :[{}]", channelPoolMap.size());
     }
 
-    public void remove(InetSocketAddress inetSocketAddress) {
-        String key = inetSocketAddress.toString();
-        channelMap.remove(key);
-        log.info("Channel map size :[{}]", channelMap.size());
+    public void close() {
+        channelPoolMap.values().forEach(ChannelPool::close);
+        channelPoolMap.clear();
     }
 }
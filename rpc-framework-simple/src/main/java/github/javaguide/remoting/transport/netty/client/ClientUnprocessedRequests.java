@@ -1,10 +1,17 @@
 package github.javaguide.remoting.transport.netty.client;
 
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.exception.RpcException;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.netty.StripedLongObjectMap;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import lombok.extern.slf4j.Slf4j;
 
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * unprocessed requests by the server.
@@ -12,22 +19,58 @@ import java.util.concurrent.ConcurrentHashMap;
  * @author shuang.kou
  * @createTime 2020年06月04日 17:30:00
  */
+@Slf4j
 public class ClientUnprocessedRequests {
-    //客户端请求服务，生成一个future，当服务端执行完服务返回给客户端后，在客户端的readChannelHandler中调用complete(rpcResponse)唤醒请求线程，并传递rpcResponse。
-    private static final Map<String, CompletableFuture<RpcResponse<Object>>> UNPROCESSED_RESPONSE_FUTURES = new ConcurrentHashMap<>();
+    //客户端请求服务，生成一个future，当服务端执行完服务返回给客户端后，在客户端的readChannelHandler中调用complete(requestId, rpcResponse)唤醒请求线程，并传递rpcResponse。
+    //key为协议头中的8字节requestId，服务端原样回写，据此关联请求与响应
+    private static final StripedLongObjectMap<CompletableFuture<RpcResponse<Object>>> UNPROCESSED_RESPONSE_FUTURES = new StripedLongObjectMap<>();
+    private static final AtomicLong REQUEST_ID = new AtomicLong(0);
+    /**
+     * 每个请求的超时时间由时间轮统一管理：到期仍未收到响应则异常完成future并从map中清除，避免响应丢失时future永久驻留
+     */
+    private static final HashedWheelTimer TIMEOUT_TIMER = new HashedWheelTimer(
+            ThreadPoolFactoryUtil.createThreadFactory("rpc-request-timeout", true), 10, TimeUnit.MILLISECONDS);
 
-    public void put(String requestId, CompletableFuture<RpcResponse<Object>> future) {
+    /**
+     * 为一次发送分配协议头中的requestId，重试时每次发送都会分配新的id
+     */
+    public long nextRequestId() {
+        return REQUEST_ID.incrementAndGet();
+    }
+
+    public void put(long requestId, CompletableFuture<RpcResponse<Object>> future, long timeoutMillis) {
         UNPROCESSED_RESPONSE_FUTURES.put(requestId, future);
+        Timeout timeout = TIMEOUT_TIMER.newTimeout(t -> {
+            if (UNPROCESSED_RESPONSE_FUTURES.remove(requestId, future)) {
+                log.warn("request [{}] timed out after [{}] ms, [{}] requests still in flight", requestId, timeoutMillis, inFlightCount());
+                future.completeExceptionally(new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_TIMEOUT,
+                        "requestId:" + requestId + ", timeout:" + timeoutMillis + "ms"));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        //无论正常响应、写失败还是超时，future完成后都取消时间轮上的任务
+        future.whenComplete((rpcResponse, throwable) -> timeout.cancel());
+    }
+
+    public void remove(long requestId, CompletableFuture<RpcResponse<Object>> future) {
+        UNPROCESSED_RESPONSE_FUTURES.remove(requestId, future);
     }
 
-    public void complete(RpcResponse<Object> rpcResponse) {
+    public void complete(long requestId, RpcResponse<Object> rpcResponse) {
         //删除key，并返回value，若不存在key则返回null
-        CompletableFuture<RpcResponse<Object>> future = UNPROCESSED_RESPONSE_FUTURES.remove(rpcResponse.getRequestId());
+        CompletableFuture<RpcResponse<Object>> future = UNPROCESSED_RESPONSE_FUTURES.remove(requestId);
         if (null != future) {
             //会唤醒客户端的rpcResponse = future.get()
             future.complete(rpcResponse);
         } else {
-            throw new IllegalStateException();
+            //重试时同一请求可能收到多次响应，超时后到达的响应也会被丢弃，避免抛异常关闭整个连接
+            log.warn("discard response of unknown request: [{}]", requestId);
         }
     }
+
+    /**
+     * 当前仍在等待响应的请求数，通过 {@link NettyRpcClient#inFlightRequests()} 暴露，请求超时时也会打印在日志中
+     */
+    public int inFlightCount() {
+        return UNPROCESSED_RESPONSE_FUTURES.size();
+    }
 }
@@ -1,48 +1,42 @@
 package github.javaguide.remoting.transport.netty.client;
 
 
-import com.github.houbb.sisyphus.core.core.RetryWaiter;
-import com.github.houbb.sisyphus.core.support.condition.RetryConditions;
-import com.github.houbb.sisyphus.core.support.wait.FixedRetryWait;
-import com.github.houbb.sisyphus.core.support.wait.NoRetryWait;
-import github.javaguide.enums.CompressTypeEnum;
-import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.config.RpcConfig;
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.ConnectionSelectEnum;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.enums.ServiceDiscoveryEnum;
+import github.javaguide.enums.TransportTypeEnum;
+import github.javaguide.exception.RpcException;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.registry.ServiceDiscovery;
 import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcCompactRequest;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
 import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.remoting.transport.netty.FlushConsolidation;
+import github.javaguide.remoting.transport.netty.NettyBufferConfig;
+import github.javaguide.remoting.transport.netty.NettyTransport;
+import github.javaguide.remoting.transport.netty.codec.CodecNegotiator;
 import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
 import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import github.javaguide.utils.StringUtil;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import com.github.houbb.sisyphus.core.core.Retryer;
 
-import java.io.File;
-import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.List;
-import java.util.concurrent.Callable;
+import java.net.SocketAddress;
 import java.util.concurrent.CompletableFuture;
-
-
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -55,167 +49,246 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 //将client调用的远程服务通过在spring的BeanPostProcessor中通过动态代理+注解 替代被注入的服务
 public final class NettyRpcClient implements RpcRequestTransport {
+    /**
+     * 请求默认使用的序列化方式，通过rpc.serialization配置，默认hessian
+     */
+    private static final byte SERIALIZATION_CODE = CodecNegotiator.serializationCode(RpcConfig.getString(RpcConfigEnum.SERIALIZATION, null));
+    /**
+     * 请求默认使用的压缩方式，通过rpc.compress配置，默认gzip
+     */
+    private static final byte COMPRESS_CODE = CodecNegotiator.compressCode(RpcConfig.getString(RpcConfigEnum.COMPRESS, null));
+    /**
+     * 到每个服务端默认的连接数，通过rpc.client.connections配置，默认1
+     */
+    private static final int CONNECTIONS = Math.max(RpcConfig.getInt(RpcConfigEnum.CLIENT_CONNECTIONS, 1), 1);
+    /**
+     * 多个连接时默认的选择方式，通过rpc.client.connection.select配置，默认roundrobin
+     */
+    private static final ConnectionSelectEnum CONNECTION_SELECT = ConnectionSelectEnum.of(RpcConfig.getString(RpcConfigEnum.CLIENT_CONNECTION_SELECT, null));
+
     private final ServiceDiscovery serviceDiscovery;
     private final ClientUnprocessedRequests clientUnprocessedRequests;
     private final ChannelProvider channelProvider;
     private final Bootstrap bootstrap;
     private final EventLoopGroup eventLoopGroup;
+    private final ChannelInitializer<Channel> channelInitializer;
+    /**
+     * 连接同一主机上服务端的unix domain socket，首次使用时才创建
+     */
+    private volatile Bootstrap domainSocketBootstrap;
+    private EventLoopGroup domainSocketEventLoopGroup;
 
 
     public NettyRpcClient() {
         // initialize resources such as EventLoopGroup, Bootstrap
-        eventLoopGroup = new NioEventLoopGroup();
+        eventLoopGroup = NettyTransport.newEventLoopGroup(0, "rpc-client-io");
+        channelInitializer = new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                ChannelPipeline p = ch.pipeline();
+                // If no data is sent to the server within 15 seconds, a heartbeat request is sent
+                p.addLast(new IdleStateHandler(0, 5, 0, TimeUnit.SECONDS));
+                p.addLast(new RpcMessageEncoder());
+                p.addLast(new RpcMessageDecoder());
+                p.addLast(new NettyRpcClientHandler());
+                FlushConsolidation.addFirst(p);
+            }
+        };
         bootstrap = new Bootstrap();
         bootstrap.group(eventLoopGroup)
-                .channel(NioSocketChannel.class)
+                .channel(NettyTransport.socketChannelClass())
                 .handler(new LoggingHandler(LogLevel.INFO))
                 //  The timeout period of the connection.
                 //  If this time is exceeded or the connection cannot be established, the connection fails.
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
-                .handler(new ChannelInitializer<SocketChannel>() {
-                    @Override
-                    protected void initChannel(SocketChannel ch) {
-                        ChannelPipeline p = ch.pipeline();
-                        // If no data is sent to the server within 15 seconds, a heartbeat request is sent
-                        p.addLast(new IdleStateHandler(0, 5, 0, TimeUnit.SECONDS));
-                        p.addLast(new RpcMessageEncoder());
-                        p.addLast(new RpcMessageDecoder());
-                        p.addLast(new NettyRpcClientHandler());
-                    }
-                });
+                .handler(channelInitializer);
+        NettyTransport.configure(bootstrap);
+        NettyBufferConfig.getInstance().configure(bootstrap);
         this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(ServiceDiscoveryEnum.ZK.getName());
         this.clientUnprocessedRequests = SingletonFactory.getInstance(ClientUnprocessedRequests.class);
-        this.channelProvider = SingletonFactory.getInstance(ChannelProvider.class);
+        this.channelProvider = new ChannelProvider(this::doConnect);
     }
 
     /**
-     * connect server and get the channel ,so that you can send rpc message to server
+     * connect server, the returned future is completed once the connection is established or fails
      *
-     * @param inetSocketAddress server address
-     * @return the channel
+     * @param socketAddress server address, tcp or unix domain socket
+     * @return the connect future
      */
-    @SneakyThrows
-    public Channel doConnect(InetSocketAddress inetSocketAddress) {
-        CompletableFuture<Channel> completableFuture = new CompletableFuture<>();
-        bootstrap.connect(inetSocketAddress).addListener((ChannelFutureListener) future -> {
+    private ChannelFuture doConnect(SocketAddress socketAddress) {
+        Bootstrap b = socketAddress instanceof DomainSocketAddress ? domainSocketBootstrap() : bootstrap;
+        return b.connect(socketAddress).addListener((ChannelFutureListener) future -> {
             if (future.isSuccess()) {
-                log.info("The client has connected [{}] successful!", inetSocketAddress.toString());
-                completableFuture.complete(future.channel());
+                log.info("The client has connected [{}] successful!", socketAddress.toString());
             } else {
-                throw new IllegalStateException();
+                log.warn("The client failed to connect [{}]", socketAddress.toString(), future.cause());
             }
         });
-        return completableFuture.get();
     }
 
+    /**
+     * unix domain socket 只支持epoll，当前传输是epoll时与TCP共用事件循环组
+     */
+    private Bootstrap domainSocketBootstrap() {
+        Bootstrap b = domainSocketBootstrap;
+        if (b != null) {
+            return b;
+        }
+        synchronized (this) {
+            if (domainSocketBootstrap == null) {
+                EventLoopGroup group = eventLoopGroup;
+                if (NettyTransport.type() != TransportTypeEnum.EPOLL) {
+                    domainSocketEventLoopGroup = NettyTransport.newDomainSocketEventLoopGroup(0, "rpc-client-uds-io");
+                    group = domainSocketEventLoopGroup;
+                }
+                b = new Bootstrap()
+                        .group(group)
+                        .channel(NettyTransport.domainSocketChannelClass())
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                        .handler(channelInitializer);
+                NettyBufferConfig.getInstance().configure(b);
+                domainSocketBootstrap = b;
+            }
+            return domainSocketBootstrap;
+        }
+    }
+
+    /**
+     * send rpc request without blocking the caller.
+     * the returned future is registered in {@link ClientUnprocessedRequests} and completed by
+     * {@link NettyRpcClientHandler#channelRead} once the response arrives, so one channel can carry many in-flight requests
+     *
+     * @param rpcRequest message body
+     * @return future of the rpc response
+     */
     @Override
-    public Object sendRpcRequest(RpcRequest rpcRequest) {
-//        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
-//        // 将这个future放到unprocessed request中，用于再次接受消息后唤醒请求体
-//        clientUnprocessedRequests.put(rpcRequest.getRequestId(), resultFuture);
-//
-//        //---------增加在timeout内重试maxAttemptCnt次直到成功或者最终失败-----------
-//        RpcResponse<Object> rpcResponse = Retryer.<RpcResponse<Object>>newInstance()
-//                .maxAttempt(rpcRequest.getMaxAttemptCnt()) //最大尝试次数
-//                .condition(RetryConditions.hasExceptionCause())
-////                .retryWaitContext(RetryWaiter.<RpcResponse<Object>>retryWait(NoRetryWait.class).context()) //无等待时间
-//                .retryWaitContext(RetryWaiter.<RpcResponse<Object>>retryWait(FixedRetryWait.class).value(rpcRequest.getTimeout()).context())
-//                .callable(new Callable<RpcResponse<Object>>() {
-//                    @Override
-//                    public RpcResponse<Object> call() throws Exception {
-//                        System.out.println("----------------------尝试一次--------------------------------");
-//                        //剩余重试次数
-//                        // build return value
-//                        // get server address（负载均衡查找到提供指定服务的服务器） ----对于容错策略：若服务器失败，则查询一个新的
-//                        InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
-//                        // get  server address related channel
-//                        Channel channel = getChannel(inetSocketAddress);
-//                        if (channel.isActive()) {
-//                            //---------------rpcRequest->rpcMessage,因为rpc两端是通过rpcMessage格式的消息传播的------------------
-//                            RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
-//                                    .codec(SerializationTypeEnum.HESSIAN.getCode())
-//                                    .compress(CompressTypeEnum.GZIP.getCode())
-//                                    .messageType(RpcConstants.REQUEST_TYPE).build();
-//
-//                            //ChannelFuture 对象表示了这个操作的异步结果
-//                            ChannelFuture channelFuture = channel.writeAndFlush(rpcMessage);
-//                            //阻塞channelFuture，直到改操作完成
-//                            channelFuture.awaitUninterruptibly();
-//                            if (channelFuture.isSuccess()) {
-//                                log.info("client send message: [{}]", rpcMessage);
-//                            }else{
-//                                log.error("Send failed:", channelFuture.cause());
-//                                throw new RuntimeException("rpc message send fail",channelFuture.cause());
-//                            }
-//                        } else {
-//                            throw new IllegalStateException();
-//                        }
-//                        return resultFuture.get();
-//                    }
-//                }).retryCall();
-
-        //1.无响应即timeout且还有次数，则重新发送。若无次数则抛出异常 2.响应成功，则判断响应是否timeout，若时则1，若不是则返回response
-        //重写时，模仿mini-mq，需要将writeAndFlush都封装在内，每次内部都要拿到响应才行（每次新建一个CompletableFuture），上面的玩意甚至都可以封装起来。
-        //只要调用失败（无论是resultFuture.get超时还是！channel.isActive()还是返回状态码失败），则抛出RuntimeException异常，Retry框架会捕获并且重试的---其中resultFuture.get超时可以主动抛出异常来被Retry框架捕获
-
-        //所以返回值直接返回response即可~~~
-
-//        // build return value
-//        resultFuture = new CompletableFuture<>()
-//        // get server address（负载均衡查找到提供指定服务的服务器）
-//        InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
-//        // get  server address related channel
-//        Channel channel = getChannel(inetSocketAddress);
-//        if (channel.isActive()) {
-//            // 将这个future放到unprocessed request中，用于再次接受消息后唤醒请求体
-//            clientUnprocessedRequests.put(rpcRequest.getRequestId(), resultFuture);
-//            //---------------rpcRequest->rpcMessage,因为rpc两端是通过rpcMessage格式的消息传播的------------------
-//            RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
-//                    .codec(SerializationTypeEnum.HESSIAN.getCode())
-//                    .compress(CompressTypeEnum.GZIP.getCode())
-//                    .messageType(RpcConstants.REQUEST_TYPE).build();
-//
-//
-//            //ChannelFuture 对象表示了这个操作的异步结果
-//            ChannelFuture channelFuture = channel.writeAndFlush(rpcMessage);
-//            //该回调函数会在 Netty 的 I/O 线程中执行
-//            channelFuture.addListener(new ChannelFutureListener() {
-//                //发送成功或失败：由netty发布该类型的监听事件
-//                @Override
-//                public void operationComplete(ChannelFuture future) throws Exception {
-//                    //-------------------------------------------------------------------------
-//                    if (future.isSuccess()) {
-//                        log.info("client send message: [{}]", rpcMessage);
-//                    } else {
-//                        //以下4种情况会触发：
-//                        //1.连接已经关闭或未建立成功
-//                        //2.写入操作本身失败
-//                        //3.发生异常，例如网络异常、编解码异常等
-//                        //4.超时
-//                        future.channel().close();
-//                        resultFuture.completeExceptionally(future.cause()); //发生异常，唤醒future.get()
-//                        log.error("Send failed:", future.cause());
-//                    }
-//                }
-//            });
-//        } else {
-//            throw new IllegalStateException();
-//        }
-
-//        return rpcResponse;
-        return null;
+    public CompletableFuture<RpcResponse<Object>> sendRpcRequest(RpcRequest rpcRequest) {
+        return sendRpcRequest(rpcRequest, TimeUnit.SECONDS.toMillis(RpcConstants.MAX_RESPONSE_TIMEOUT));
+    }
+
+    /**
+     * send rpc request without blocking the caller, failing the returned future
+     * with a timeout exception if no response arrives within timeoutMillis
+     *
+     * @param rpcRequest    message body
+     * @param timeoutMillis response deadline in milliseconds
+     * @return future of the rpc response
+     */
+    public CompletableFuture<RpcResponse<Object>> sendRpcRequest(RpcRequest rpcRequest, long timeoutMillis) {
+        return sendRpcRequest(rpcRequest, timeoutMillis, SERIALIZATION_CODE, COMPRESS_CODE, CONNECTIONS, CONNECTION_SELECT);
+    }
+
+    /**
+     * send rpc request with the timeout and codec of the referenced service.
+     * the service's serialization/compress/connections fall back to the global config when not set
+     *
+     * @param rpcRequest       message body
+     * @param rpcServiceConfig config of the referenced service
+     * @return future of the rpc response
+     */
+    public CompletableFuture<RpcResponse<Object>> sendRpcRequest(RpcRequest rpcRequest, RpcServiceConfig rpcServiceConfig) {
+        byte codec = StringUtil.isBlank(rpcServiceConfig.getSerialization())
+                ? SERIALIZATION_CODE : CodecNegotiator.serializationCode(rpcServiceConfig.getSerialization());
+        byte compress = StringUtil.isBlank(rpcServiceConfig.getCompress())
+                ? COMPRESS_CODE : CodecNegotiator.compressCode(rpcServiceConfig.getCompress());
+        int connections = rpcServiceConfig.getConnections() > 0 ? rpcServiceConfig.getConnections() : CONNECTIONS;
+        ConnectionSelectEnum select = StringUtil.isBlank(rpcServiceConfig.getConnectionSelect())
+                ? CONNECTION_SELECT : ConnectionSelectEnum.of(rpcServiceConfig.getConnectionSelect());
+        return sendRpcRequest(rpcRequest, rpcServiceConfig.getResponseTimeoutMillis(), codec, compress, connections, select);
+    }
+
+    private CompletableFuture<RpcResponse<Object>> sendRpcRequest(RpcRequest rpcRequest, long timeoutMillis, byte codec, byte compress,
+                                                                  int connections, ConnectionSelectEnum select) {
+        // build return value
+        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+        // get server address（负载均衡查找到提供指定服务的服务器，服务端在本机时优先使用unix domain socket）
+        SocketAddress socketAddress = serviceDiscovery.lookupServicePreferLocal(rpcRequest);
+        sendTo(socketAddress, rpcRequest, timeoutMillis, codec, compress, connections, select, resultFuture);
+        return resultFuture;
     }
 
-    public Channel getChannel(InetSocketAddress inetSocketAddress) {
-        Channel channel = channelProvider.get(inetSocketAddress);
-        if (channel == null) {
-            channel = doConnect(inetSocketAddress);
-            channelProvider.set(inetSocketAddress, channel);
+    private void sendTo(SocketAddress socketAddress, RpcRequest rpcRequest, long timeoutMillis, byte codec, byte compress,
+                        int connections, ConnectionSelectEnum select, CompletableFuture<RpcResponse<Object>> resultFuture) {
+        // get server address related channel，连接尚未建立时在建立完成后再发送，不阻塞调用方
+        CompletableFuture<Channel> channelFuture = channelProvider.acquire(socketAddress, connections, select);
+        channelFuture.whenComplete((channel, throwable) -> {
+            if (throwable != null && socketAddress instanceof DomainSocketAddress) {
+                // 注册中心中的unix domain socket路径已失效，改用同一服务端的TCP地址
+                log.warn("unix domain socket [{}] is unavailable, fall back to tcp", socketAddress);
+                channelProvider.remove(socketAddress);
+                InetSocketAddress inetSocketAddress;
+                try {
+                    inetSocketAddress = serviceDiscovery.domainSocketUnavailable(rpcRequest, socketAddress);
+                } catch (RuntimeException e) {
+                    resultFuture.completeExceptionally(e);
+                    return;
+                }
+                sendTo(inetSocketAddress, rpcRequest, timeoutMillis, codec, compress, connections, select, resultFuture);
+            } else if (throwable != null) {
+                resultFuture.completeExceptionally(throwable);
+            } else if (!channel.isActive()) {
+                resultFuture.completeExceptionally(new IllegalStateException("channel to " + socketAddress + " is inactive"));
+            } else {
+                send(channel, rpcRequest, timeoutMillis, codec, compress, resultFuture);
+            }
+        });
+    }
+
+    private void send(Channel channel, RpcRequest rpcRequest, long timeoutMillis, byte codec, byte compress,
+                      CompletableFuture<RpcResponse<Object>> resultFuture) {
+        // 将这个future放到unprocessed request中，用于再次接受消息后唤醒请求体；以协议头中的long requestId关联响应
+        long requestId = clientUnprocessedRequests.nextRequestId();
+        clientUnprocessedRequests.put(requestId, resultFuture, timeoutMillis);
+        ChannelPool.pending(channel, resultFuture);
+        //---------------rpcRequest->rpcMessage,因为rpc两端是通过rpcMessage格式的消息传播的------------------
+        // 握手得到服务端方法表后只发送方法id和参数，方法不在表中时仍发送完整请求
+        Integer methodId = CodecNegotiator.peerMethodId(channel, rpcRequest);
+        RpcMessage rpcMessage = RpcMessage.builder()
+                .data(methodId == null ? rpcRequest : new RpcCompactRequest(methodId, rpcRequest.getParameters()))
+                //对端未声明支持期望的方式时退回到hessian/none
+                .codec(CodecNegotiator.negotiateSerialization(channel, codec))
+                .compress(CodecNegotiator.negotiateCompress(channel, compress))
+                .requestId(requestId)
+                .messageType(methodId == null ? RpcConstants.REQUEST_TYPE : RpcConstants.COMPACT_REQUEST_TYPE).build();
+        // 不阻塞等待写结果，该回调函数会在 Netty 的 I/O 线程中执行
+        ChannelFutureListener listener = future -> {
+            if (future.isSuccess()) {
+                log.info("client send message: [{}]", rpcMessage);
+            } else {
+                //连接已关闭、写入失败或编解码异常等，唤醒等待该future的调用方
+                future.channel().close();
+                clientUnprocessedRequests.remove(requestId, resultFuture);
+                resultFuture.completeExceptionally(future.cause());
+                log.error("Send failed:", future.cause());
+            }
+        };
+        // 连接不可写时在发送队列中排队，队列已满时按 rpc.client.backpressure 阻塞或拒绝
+        if (!OutboundQueue.of(channel).write(rpcMessage, listener, timeoutMillis)) {
+            clientUnprocessedRequests.remove(requestId, resultFuture);
+            resultFuture.completeExceptionally(new RpcException(RpcErrorMessageEnum.CLIENT_SEND_QUEUE_FULL, channel.remoteAddress().toString()));
+            log.warn("send queue to [{}] is full, request [{}] rejected", channel.remoteAddress(), rpcRequest.getRpcServiceName());
         }
-        return channel;
+    }
+
+    @SneakyThrows
+    public Channel getChannel(SocketAddress socketAddress) {
+        return channelProvider.acquire(socketAddress, CONNECTIONS, CONNECTION_SELECT).get();
+    }
+
+    /**
+     * 已发送、仍在等待响应的请求数，响应丢失时该值持续增长，直到请求超时
+     */
+    public int inFlightRequests() {
+        return clientUnprocessedRequests.inFlightCount();
     }
 
     public void close() {
+        channelProvider.close();
         eventLoopGroup.shutdownGracefully();
+        synchronized (this) {
+            if (domainSocketEventLoopGroup != null) {
+                domainSocketEventLoopGroup.shutdownGracefully();
+            }
+        }
     }
 }
@@ -4,8 +4,10 @@ import github.javaguide.enums.CompressTypeEnum;
 import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcHandshake;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.netty.codec.CodecNegotiator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -16,8 +18,6 @@ import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 
-import java.net.InetSocketAddress;
-
 /**
  * Customize the client ChannelHandler to process the data sent by the server
  *
@@ -31,11 +31,19 @@ import java.net.InetSocketAddress;
 @Slf4j
 public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
     private final ClientUnprocessedRequests clientUnprocessedRequests;
-    private final NettyRpcClient nettyRpcClient;
 
     public NettyRpcClientHandler() {
         this.clientUnprocessedRequests = SingletonFactory.getInstance(ClientUnprocessedRequests.class);
-        this.nettyRpcClient = SingletonFactory.getInstance(NettyRpcClient.class);
+    }
+
+    /**
+     * 连接建立后先声明本端支持的序列化/压缩方式，服务端回复其支持的方式
+     */
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        ctx.writeAndFlush(CodecNegotiator.handshakeMessage(RpcConstants.HANDSHAKE_REQUEST_TYPE, null))
+                .addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+        super.channelActive(ctx);
     }
 
     /**
@@ -50,9 +58,11 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
                 byte messageType = tmp.getMessageType();
                 if (messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
                     log.info("heart [{}]", tmp.getData());
+                } else if (messageType == RpcConstants.HANDSHAKE_RESPONSE_TYPE) {
+                    CodecNegotiator.setPeerCodecs(ctx.channel(), (RpcHandshake) tmp.getData());
                 } else if (messageType == RpcConstants.RESPONSE_TYPE) {
                     RpcResponse<Object> rpcResponse = (RpcResponse<Object>) tmp.getData();
-                    clientUnprocessedRequests.complete(rpcResponse);
+                    clientUnprocessedRequests.complete(tmp.getRequestId(), rpcResponse);
                 }
             }
         } finally {
@@ -60,6 +70,26 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    /**
+     * 连接降到写缓冲区低水位以下时写出发送队列中排队的请求
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            OutboundQueue.drain(ctx.channel());
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    /**
+     * 连接关闭后发送队列中排队的请求不会再写出，立即让其失败
+     */
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        OutboundQueue.drain(ctx.channel());
+        super.channelInactive(ctx);
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         if (evt instanceof IdleStateEvent) {
@@ -67,7 +97,8 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
             //客户端写空闲时给客户端发送 心跳检测包ping，客户端回应pong---通过心跳检测来动态的监控
             if (state == IdleState.WRITER_IDLE) {
                 log.info("write idle happen [{}]", ctx.channel().remoteAddress());
-                Channel channel = nettyRpcClient.getChannel((InetSocketAddress) ctx.channel().remoteAddress());
+                // 同一服务端可能有多个连接，心跳在空闲的这个连接上发送
+                Channel channel = ctx.channel();
                 RpcMessage rpcMessage = new RpcMessage();
                 rpcMessage.setCodec(SerializationTypeEnum.PROTOSTUFF.getCode());
                 rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
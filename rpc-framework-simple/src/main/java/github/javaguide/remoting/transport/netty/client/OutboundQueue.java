@@ -0,0 +1,141 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.config.RpcConfig;
+import github.javaguide.enums.BackpressureEnum;
+import github.javaguide.enums.RpcConfigEnum;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import lombok.AllArgsConstructor;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一个连接上等待写出的请求。
+ * 连接可写且没有排队的请求时直接写出；连接不可写（待写出字节数超过写缓冲区高水位）时放入有界队列，
+ * 连接降到低水位以下恢复可写后由event loop按顺序写出，对端读取慢时请求不会无限堆积在netty的发送缓冲区中。
+ * 队列已满时按 rpc.client.backpressure 阻塞调用方直到有空位或超时(block)，或直接拒绝(reject)；
+ * 在event loop线程上发送时不能阻塞，总是拒绝
+ */
+final class OutboundQueue {
+    private static final AttributeKey<OutboundQueue> OUTBOUND_QUEUE = AttributeKey.valueOf("rpc.client.outbound.queue");
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int CAPACITY = RpcConfig.getInt(RpcConfigEnum.CLIENT_SEND_QUEUE_CAPACITY, DEFAULT_CAPACITY);
+    private static final BackpressureEnum BACKPRESSURE = BackpressureEnum.of(RpcConfig.getString(RpcConfigEnum.CLIENT_BACKPRESSURE, null));
+
+    private final Channel channel;
+    private final BlockingQueue<Entry> queue;
+    private final BackpressureEnum backpressure;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Runnable drainTask;
+
+    OutboundQueue(Channel channel, int capacity, BackpressureEnum backpressure) {
+        this.channel = channel;
+        this.queue = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+        this.backpressure = backpressure;
+        this.drainTask = () -> {
+            drainScheduled.set(false);
+            drain();
+        };
+    }
+
+    /**
+     * 取得连接上的发送队列，首次使用时创建
+     */
+    static OutboundQueue of(Channel channel) {
+        Attribute<OutboundQueue> attribute = channel.attr(OUTBOUND_QUEUE);
+        OutboundQueue outboundQueue = attribute.get();
+        if (outboundQueue == null) {
+            OutboundQueue created = new OutboundQueue(channel, CAPACITY, BACKPRESSURE);
+            outboundQueue = attribute.setIfAbsent(created);
+            if (outboundQueue == null) {
+                outboundQueue = created;
+            }
+        }
+        return outboundQueue;
+    }
+
+    /**
+     * 连接恢复可写或关闭时由 {@link NettyRpcClientHandler} 在event loop上调用
+     */
+    static void drain(Channel channel) {
+        OutboundQueue outboundQueue = channel.attr(OUTBOUND_QUEUE).get();
+        if (outboundQueue != null) {
+            outboundQueue.drain();
+        }
+    }
+
+    /**
+     * 可在任意线程调用，写出结果（包括连接关闭后排队请求的失败）通过listener通知
+     *
+     * @param timeoutMillis block时队列已满最多等待的时间
+     * @return false 队列已满，请求没有写出也没有排队
+     */
+    boolean write(Object msg, ChannelFutureListener listener, long timeoutMillis) {
+        if (queue.isEmpty() && channel.isWritable()) {
+            channel.writeAndFlush(msg).addListener(listener);
+            return true;
+        }
+        Entry entry = new Entry(msg, listener);
+        boolean queued;
+        if (backpressure == BackpressureEnum.BLOCK && !channel.eventLoop().inEventLoop()) {
+            try {
+                queued = queue.offer(entry, timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+        } else {
+            queued = queue.offer(entry);
+        }
+        if (queued) {
+            // 排队期间连接可能已恢复可写，可写状态不再变化时不会再触发drain
+            scheduleDrain();
+        }
+        return queued;
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            channel.eventLoop().execute(drainTask);
+        }
+    }
+
+    /**
+     * 只在event loop上执行：写出排队的请求直到连接再次不可写，连接已关闭时让所有排队的请求失败
+     */
+    void drain() {
+        Entry entry;
+        if (!channel.isActive()) {
+            ClosedChannelException cause = new ClosedChannelException();
+            while ((entry = queue.poll()) != null) {
+                channel.newFailedFuture(cause).addListener(entry.listener);
+            }
+            return;
+        }
+        boolean written = false;
+        // write时消息已编码并计入待写出字节数，超过高水位后isWritable立即变为false
+        while (channel.isWritable() && (entry = queue.poll()) != null) {
+            channel.write(entry.msg).addListener(entry.listener);
+            written = true;
+        }
+        if (written) {
+            channel.flush();
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final Object msg;
+        private final ChannelFutureListener listener;
+    }
+}
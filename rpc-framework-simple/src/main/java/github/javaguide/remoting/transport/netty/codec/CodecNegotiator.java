@@ -0,0 +1,157 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.compress.Compress;
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.remoting.dto.RpcHandshake;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.serialize.Serializer;
+import github.javaguide.utils.StringUtil;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按连接协商序列化与压缩方式。
+ * 连接建立后两端交换 {@link RpcHandshake}，对端声明的能力保存在 channel 属性中；
+ * 发送时若对端不支持期望的方式，或握手尚未完成、还不知道对端支持哪些方式，则退回到两端都具备的 hessian / none
+ */
+@Slf4j
+public final class CodecNegotiator {
+    private static final AttributeKey<RpcHandshake> PEER_CODECS = AttributeKey.valueOf("rpcPeerCodecs");
+    private static final RpcHandshake LOCAL_CODECS = RpcHandshake.builder()
+            .serializations(loadableSerializations())
+            .compressions(loadableCompressions()).build();
+
+    private CodecNegotiator() {
+    }
+
+    /**
+     * 本端可用的序列化/压缩方式
+     */
+    public static RpcHandshake localCodecs() {
+        return LOCAL_CODECS;
+    }
+
+    /**
+     * @param methodIds 服务端的方法表，客户端发送时为null
+     */
+    public static RpcMessage handshakeMessage(byte messageType, Map<String, Integer> methodIds) {
+        RpcHandshake handshake = RpcHandshake.builder()
+                .serializations(LOCAL_CODECS.getSerializations())
+                .compressions(LOCAL_CODECS.getCompressions())
+                .methodIds(methodIds).build();
+        return RpcMessage.builder()
+                .messageType(messageType)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.NONE.getCode())
+                .data(handshake).build();
+    }
+
+    /**
+     * @return 对端方法表中该请求对应的方法id，握手未完成或对端没有该方法时返回null
+     */
+    public static Integer peerMethodId(Channel channel, RpcRequest rpcRequest) {
+        RpcHandshake peerCodecs = channel.attr(PEER_CODECS).get();
+        if (peerCodecs == null || peerCodecs.getMethodIds() == null || peerCodecs.getMethodIds().isEmpty()) {
+            return null;
+        }
+        return peerCodecs.getMethodIds().get(rpcRequest.getMethodKey());
+    }
+
+    public static void setPeerCodecs(Channel channel, RpcHandshake peerCodecs) {
+        log.info("peer [{}] supports codecs: [{}]", channel.remoteAddress(), peerCodecs);
+        channel.attr(PEER_CODECS).set(peerCodecs);
+    }
+
+    /**
+     * 连接建立后不等待握手即可发送，握手响应到达前的请求使用hessian，对端缺少期望的序列化方式时也能解码
+     */
+    public static byte negotiateSerialization(Channel channel, byte preferred) {
+        RpcHandshake peerCodecs = channel.attr(PEER_CODECS).get();
+        if (peerCodecs != null && peerCodecs.getSerializations() != null
+                && peerCodecs.getSerializations().contains(SerializationTypeEnum.getName(preferred))) {
+            return preferred;
+        }
+        return SerializationTypeEnum.HESSIAN.getCode();
+    }
+
+    /**
+     * 握手响应到达前不压缩
+     */
+    public static byte negotiateCompress(Channel channel, byte preferred) {
+        RpcHandshake peerCodecs = channel.attr(PEER_CODECS).get();
+        if (peerCodecs != null && peerCodecs.getCompressions() != null
+                && peerCodecs.getCompressions().contains(CompressTypeEnum.getName(preferred))) {
+            return preferred;
+        }
+        return CompressTypeEnum.NONE.getCode();
+    }
+
+    /**
+     * 按扩展名解析序列化方式，未配置或未知时使用hessian
+     */
+    public static byte serializationCode(String name) {
+        if (StringUtil.isBlank(name)) {
+            return SerializationTypeEnum.HESSIAN.getCode();
+        }
+        SerializationTypeEnum serialization = SerializationTypeEnum.fromName(name);
+        if (serialization == null) {
+            log.warn("unknown serialization [{}], use [{}]", name, SerializationTypeEnum.HESSIAN.getName());
+            serialization = SerializationTypeEnum.HESSIAN;
+        }
+        return serialization.getCode();
+    }
+
+    /**
+     * 按扩展名解析压缩方式，未配置或未知时使用gzip
+     */
+    public static byte compressCode(String name) {
+        if (StringUtil.isBlank(name)) {
+            return CompressTypeEnum.GZIP.getCode();
+        }
+        CompressTypeEnum compress = CompressTypeEnum.fromName(name);
+        if (compress == null) {
+            log.warn("unknown compress [{}], use [{}]", name, CompressTypeEnum.GZIP.getName());
+            compress = CompressTypeEnum.GZIP;
+        }
+        return compress.getCode();
+    }
+
+    private static List<String> loadableSerializations() {
+        List<String> names = new ArrayList<>();
+        for (SerializationTypeEnum serialization : SerializationTypeEnum.values()) {
+            if (isLoadable(Serializer.class, serialization.getName())) {
+                names.add(serialization.getName());
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private static List<String> loadableCompressions() {
+        List<String> names = new ArrayList<>();
+        for (CompressTypeEnum compress : CompressTypeEnum.values()) {
+            if (isLoadable(Compress.class, compress.getName())) {
+                names.add(compress.getName());
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private static boolean isLoadable(Class<?> type, String name) {
+        try {
+            return ExtensionLoader.getExtensionLoader(type).getExtension(name) != null;
+        } catch (Throwable e) {
+            //扩展未注册或依赖的本地库不可用
+            log.warn("[{}] extension [{}] is not available", type.getSimpleName(), name);
+            return false;
+        }
+    }
+}
@@ -5,6 +5,8 @@ import github.javaguide.enums.CompressTypeEnum;
 import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcCompactRequest;
+import github.javaguide.remoting.dto.RpcHandshake;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
@@ -65,6 +67,19 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
         super(maxFrameLength, lengthFieldOffset, lengthFieldLength, lengthAdjustment, initialBytesToStrip);
     }
 
+    private static Class<?> bodyClass(byte messageType) {
+        if (messageType == RpcConstants.REQUEST_TYPE) {
+            return RpcRequest.class;
+        }
+        if (messageType == RpcConstants.COMPACT_REQUEST_TYPE) {
+            return RpcCompactRequest.class;
+        }
+        if (messageType == RpcConstants.HANDSHAKE_REQUEST_TYPE || messageType == RpcConstants.HANDSHAKE_RESPONSE_TYPE) {
+            return RpcHandshake.class;
+        }
+        return RpcResponse.class;
+    }
+
     @Override
     protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
         Object decoded = super.decode(ctx, in);
@@ -73,7 +88,7 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
             //读头
             if (frame.readableBytes() >= RpcConstants.TOTAL_LENGTH) {
                 try {
-                    return decodeFrame(frame);
+                    return decodeFrame(ctx, frame);
                 } catch (Exception e) {
                     log.error("Decode frame error!", e);
                     throw e;
@@ -87,7 +102,7 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
     }
 
 
-    private Object decodeFrame(ByteBuf in) {
+    private Object decodeFrame(ChannelHandlerContext ctx, ByteBuf in) {
         // 1.校验魔数、版本号
         checkMagicNumber(in);
         checkVersion(in);
@@ -99,6 +114,7 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
         long requestId = in.readLong();
         RpcMessage rpcMessage = RpcMessage.builder()
                 .codec(codecType)
+                .compress(compressType)
                 .requestId(requestId)
                 .messageType(messageType).build();
         if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
@@ -112,25 +128,30 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
         //3. 获取目标长度的rpcMessage.data，并逆序列化、解压
         int bodyLength = fullLength - RpcConstants.HEAD_LENGTH; //body长度为fullLength-header长
         if (bodyLength > 0) {
-            byte[] bs = new byte[bodyLength];
-            in.readBytes(bs);
-            //decoder：先解压再解序列化
-            // decompress the bytes
-            String compressName = CompressTypeEnum.getName(compressType);
-            Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
-                    .getExtension(compressName);
-            bs = compress.decompress(bs);
+            // body是frame上的切片视图，不拷贝；frame在decode()中统一释放
+            ByteBuf body = in.readSlice(bodyLength);
             // deserialize the object
             String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
             log.info("codec name: [{}] ", codecName);
             Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
                     .getExtension(codecName);
-            if (messageType == RpcConstants.REQUEST_TYPE) {
-                RpcRequest tmpValue = serializer.deserialize(bs, RpcRequest.class);
-                rpcMessage.setData(tmpValue);
-            } else {
-                RpcResponse tmpValue = serializer.deserialize(bs, RpcResponse.class);
-                rpcMessage.setData(tmpValue);
+            Class<?> bodyClass = bodyClass(messageType);
+            if (compressType == CompressTypeEnum.NONE.getCode()) {
+                // 未压缩的body直接在切片上反序列化
+                rpcMessage.setData(serializer.deserialize(body, bodyClass));
+                return rpcMessage;
+            }
+            //decoder：先解压再解序列化
+            // decompress the bytes
+            String compressName = CompressTypeEnum.getName(compressType);
+            Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
+                    .getExtension(compressName);
+            ByteBuf decompressed = ctx.alloc().buffer(bodyLength);
+            try {
+                compress.decompress(body, decompressed);
+                rpcMessage.setData(serializer.deserialize(decompressed, bodyClass));
+            } finally {
+                decompressed.release();
             }
         }
         return rpcMessage;
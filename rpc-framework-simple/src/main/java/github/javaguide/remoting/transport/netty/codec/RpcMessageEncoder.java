@@ -2,7 +2,9 @@ package github.javaguide.remoting.transport.netty.codec;
 
 
 import github.javaguide.compress.Compress;
+import github.javaguide.config.RpcConfig;
 import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.remoting.constants.RpcConstants;
@@ -10,12 +12,10 @@ import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.serialize.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToByteEncoder;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-
 
 /**
  * <p>
@@ -43,10 +43,10 @@ import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 public class RpcMessageEncoder extends MessageToByteEncoder<RpcMessage> {
-    private static final AtomicLong ATOMIC_Long = new AtomicLong(0);
-
+    private static final int COMPRESS_THRESHOLD = RpcConfig.getInt(RpcConfigEnum.COMPRESS_THRESHOLD, RpcConstants.DEFAULT_COMPRESS_THRESHOLD);
     @Override
     protected void encode(ChannelHandlerContext ctx, RpcMessage rpcMessage, ByteBuf out) {
+        int startIndex = out.writerIndex();
         try {
             out.writeBytes(RpcConstants.MAGIC_NUMBER);
             out.writeByte(RpcConstants.VERSION);
@@ -55,40 +55,54 @@ public class RpcMessageEncoder extends MessageToByteEncoder<RpcMessage> {
             byte messageType = rpcMessage.getMessageType();
             out.writeByte(messageType);
             out.writeByte(rpcMessage.getCodec()); //SerializationTypeEnum.HESSIAN.getCode()
-            out.writeByte(CompressTypeEnum.GZIP.getCode());
-            out.writeLong(ATOMIC_Long.getAndIncrement()); //这里为了测试，直接简单搞了个请求id
-            // build full length
-            byte[] bodyBytes = null;
-            int fullLength = RpcConstants.HEAD_LENGTH;
+            // 先占位，body写完后回填实际使用的压缩类型
+            out.writeByte(CompressTypeEnum.NONE.getCode());
+            out.writeLong(rpcMessage.getRequestId()); //由客户端分配，服务端响应时原样回写
             // if messageType is not heartbeat message,fullLength = head length + body length
             if (messageType != RpcConstants.HEARTBEAT_REQUEST_TYPE
                     && messageType != RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
-                // serialize the object
-                String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
-                log.info("codec name: [{}] ", codecName);
-                Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
-                        .getExtension(codecName);
-                bodyBytes = serializer.serialize(rpcMessage.getData());
-                // compress the bytes
-                String compressName = CompressTypeEnum.getName(rpcMessage.getCompress());
-                Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
-                        .getExtension(compressName);
-                bodyBytes = compress.compress(bodyBytes);
-                fullLength += bodyBytes.length; //fullLength长 16+body.length
-            }
-
-            if (bodyBytes != null) {
-                out.writeBytes(bodyBytes);
+                writeBody(ctx, rpcMessage, out, startIndex);
             }
-            int writeIndex = out.writerIndex();
-            //调整writeIndex至index=5的位置
-            out.writerIndex(writeIndex - fullLength + RpcConstants.MAGIC_NUMBER.length + 1); //这里的fullLength长 16+body.length
-            out.writeInt(fullLength);
-            out.writerIndex(writeIndex);
+            // body直接写在out中，最后回填full length（位于index=5处）
+            int fullLength = out.writerIndex() - startIndex;
+            out.setInt(startIndex + RpcConstants.MAGIC_NUMBER.length + 1, fullLength);
         } catch (Exception e) {
-            log.error("Encode request error!", e);
+            // 丢弃写了一半的帧，避免破坏连接上之后的消息；抛出后本次写失败，调用方的listener随即得到通知
+            out.writerIndex(startIndex);
+            throw new EncoderException("Encode request error!", e);
         }
+    }
 
+    /**
+     * 序列化结果直接写入 out；只有请求了压缩且消息体不小于阈值时，才把这段 body 挪到池化的临时缓冲区再压缩回 out。
+     * 实际使用的压缩类型回填到 header 中，decoder 据此选择解压方式
+     */
+    private void writeBody(ChannelHandlerContext ctx, RpcMessage rpcMessage, ByteBuf out, int startIndex) {
+        // serialize the object
+        String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
+        log.info("codec name: [{}] ", codecName);
+        Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
+                .getExtension(codecName);
+        int bodyIndex = out.writerIndex();
+        serializer.serialize(rpcMessage.getData(), out);
+        int bodyLength = out.writerIndex() - bodyIndex;
+        byte compressType = rpcMessage.getCompress();
+        if (compressType == CompressTypeEnum.NONE.getCode() || bodyLength < COMPRESS_THRESHOLD) {
+            return;
+        }
+        // compress the bytes
+        String compressName = CompressTypeEnum.getName(compressType);
+        Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
+                .getExtension(compressName);
+        ByteBuf serialized = ctx.alloc().buffer(bodyLength);
+        try {
+            serialized.writeBytes(out, bodyIndex, bodyLength);
+            out.writerIndex(bodyIndex);
+            compress.compress(serialized, out);
+        } finally {
+            serialized.release();
+        }
+        out.setByte(startIndex + RpcConstants.COMPRESS_INDEX, compressType);
     }
 
 
@@ -1,32 +1,38 @@
 package github.javaguide.remoting.transport.netty.server;
 
 import github.javaguide.config.CustomShutdownHook;
+import github.javaguide.config.RpcConfig;
 import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.TransportTypeEnum;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.provider.ServiceProvider;
 import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.transport.netty.FlushConsolidation;
+import github.javaguide.remoting.transport.netty.NettyBufferConfig;
+import github.javaguide.remoting.transport.netty.NettyTransport;
 import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
 import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
-import github.javaguide.utils.RuntimeUtil;
-import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import github.javaguide.remoting.transport.shm.ShmRpcServer;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.timeout.IdleStateHandler;
-import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -41,6 +47,20 @@ import java.util.concurrent.TimeUnit;
 public class NettyRpcServer {
 
     public static final int PORT = 9998;
+    /**
+     * epoll下开启SO_REUSEPORT时，由多个acceptor分别监听同一端口，内核在它们之间分配新连接
+     */
+    private static final boolean REUSE_PORT = RpcConfig.getBoolean(RpcConfigEnum.SERVER_REUSE_PORT, false);
+    private static final int ACCEPTORS = Math.max(RpcConfig.getInt(RpcConfigEnum.SERVER_ACCEPTORS, Runtime.getRuntime().availableProcessors()), 1);
+    /**
+     * 额外监听的unix domain socket路径，同一主机上的客户端通过它绕过TCP回环
+     */
+    private static final String DOMAIN_SOCKET_PATH = domainSocketPathOf(RpcConfig.getString(RpcConfigEnum.SERVER_DOMAIN_SOCKET_PATH, null));
+    /**
+     * 共享内存传输使用的文件，配置后与netty监听同时开启
+     */
+    private static final String SHM_PATH = RpcConfig.getString(RpcConfigEnum.SHM_PATH, null);
+    private static final int SHM_CAPACITY = RpcConfig.getInt(RpcConfigEnum.SHM_CAPACITY, 4 * 1024 * 1024);
 
     private final ServiceProvider serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
 
@@ -48,21 +68,53 @@ public class NettyRpcServer {
         serviceProvider.publishService(rpcServiceConfig);
     }
 
+    /**
+     * 服务端监听的unix domain socket路径，未开启或当前平台不支持时返回null
+     */
+    public static String domainSocketPath() {
+        return DOMAIN_SOCKET_PATH;
+    }
+
     @SneakyThrows
     public void start() {
 
         CustomShutdownHook.getCustomShutdownHook().clearAll();
         String host = InetAddress.getLocalHost().getHostAddress();
-        EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
-        DefaultEventExecutorGroup serviceHandlerGroup = new DefaultEventExecutorGroup(
-                RuntimeUtil.cpus() * 2,
-                ThreadPoolFactoryUtil.createThreadFactory("service-handler-group", false)
-        );
+        ShmRpcServer shmRpcServer = null;
+        if (SHM_PATH != null) {
+            shmRpcServer = new ShmRpcServer(SHM_PATH, SHM_CAPACITY);
+            shmRpcServer.start();
+        }
+        boolean reusePort = REUSE_PORT && NettyTransport.supportsReusePort();
+        if (REUSE_PORT && !reusePort) {
+            log.warn("rpc.server.reuseport requires the epoll transport, current transport is [{}]", NettyTransport.type().getName());
+        }
+        int acceptors = reusePort ? ACCEPTORS : 1;
+        EventLoopGroup bossGroup = NettyTransport.newEventLoopGroup(acceptors, "rpc-server-boss");
+        EventLoopGroup workerGroup = NettyTransport.newEventLoopGroup(0, "rpc-server-io");
+        // unix domain socket 只支持epoll，当前传输不是epoll时使用单独的事件循环组
+        boolean sharedGroups = NettyTransport.type() == TransportTypeEnum.EPOLL;
+        EventLoopGroup domainBossGroup = DOMAIN_SOCKET_PATH == null ? null
+                : sharedGroups ? bossGroup : NettyTransport.newDomainSocketEventLoopGroup(1, "rpc-server-uds-boss");
+        EventLoopGroup domainWorkerGroup = DOMAIN_SOCKET_PATH == null ? null
+                : sharedGroups ? workerGroup : NettyTransport.newDomainSocketEventLoopGroup(0, "rpc-server-uds-io");
+        ChannelInitializer<Channel> childHandler = new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                // 30 秒之内没有收到客户端请求的话就关闭连接
+                ChannelPipeline p = ch.pipeline();
+                p.addLast(new IdleStateHandler(30, 0, 0, TimeUnit.SECONDS));
+                p.addLast(new RpcMessageEncoder());
+                p.addLast(new RpcMessageDecoder());
+                // 业务方法由服务对应的Dispatcher分派执行，handler本身运行在IO线程上
+                p.addLast(new NettyRpcServerHandler());
+                FlushConsolidation.addFirst(p);
+            }
+        };
         try {
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(NettyTransport.serverSocketChannelClass())
                     // TCP默认开启了 Nagle 算法，该算法的作用是尽可能的发送大数据快，减少网络传输。TCP_NODELAY 参数的作用就是控制是否启用 Nagle 算法。
                     .childOption(ChannelOption.TCP_NODELAY, true)
                     // 是否开启 TCP 底层心跳机制
@@ -71,30 +123,58 @@ public class NettyRpcServer {
                     .option(ChannelOption.SO_BACKLOG, 128)
                     .handler(new LoggingHandler(LogLevel.INFO))
                     // 当客户端第一次进行请求的时候才会进行初始化
-                    .childHandler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        protected void initChannel(SocketChannel ch) {
-                            // 30 秒之内没有收到客户端请求的话就关闭连接
-                            ChannelPipeline p = ch.pipeline();
-                            p.addLast(new IdleStateHandler(30, 0, 0, TimeUnit.SECONDS));
-                            p.addLast(new RpcMessageEncoder());
-                            p.addLast(new RpcMessageDecoder());
-                            p.addLast(serviceHandlerGroup, new NettyRpcServerHandler());
-                        }
-                    });
+                    .childHandler(childHandler);
 
-            // 绑定端口，同步等待绑定成功
-            ChannelFuture f = b.bind(host, PORT).sync();
+            NettyTransport.configure(b);
+            NettyBufferConfig.getInstance().configure(b);
+            if (reusePort) {
+                b.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+            // 绑定端口，同步等待绑定成功；SO_REUSEPORT时每次bind得到的监听channel注册到bossGroup中不同的线程上
+            ChannelFuture[] futures = new ChannelFuture[DOMAIN_SOCKET_PATH == null ? acceptors : acceptors + 1];
+            for (int i = 0; i < acceptors; i++) {
+                futures[i] = b.bind(host, PORT).sync();
+            }
+            if (DOMAIN_SOCKET_PATH != null) {
+                // 上次异常退出可能遗留socket文件，不删除会导致bind失败
+                Files.deleteIfExists(Paths.get(DOMAIN_SOCKET_PATH));
+                ServerBootstrap domainSocketBootstrap = new ServerBootstrap()
+                        .group(domainBossGroup, domainWorkerGroup)
+                        .channel(NettyTransport.serverDomainSocketChannelClass())
+                        .childHandler(childHandler);
+                NettyBufferConfig.getInstance().configure(domainSocketBootstrap);
+                futures[acceptors] = domainSocketBootstrap.bind(new DomainSocketAddress(DOMAIN_SOCKET_PATH)).sync();
+                log.info("server also listens on unix domain socket [{}]", DOMAIN_SOCKET_PATH);
+            }
             // 等待服务端监听端口关闭
-            f.channel().closeFuture().sync();
+            for (ChannelFuture f : futures) {
+                f.channel().closeFuture().sync();
+            }
         } catch (InterruptedException e) {
             log.error("occur exception when start server:", e);
         } finally {
             log.error("shutdown bossGroup and workerGroup");
+            if (shmRpcServer != null) {
+                shmRpcServer.close();
+            }
             bossGroup.shutdownGracefully();
             workerGroup.shutdownGracefully();
-            serviceHandlerGroup.shutdownGracefully();
+            if (DOMAIN_SOCKET_PATH != null && !sharedGroups) {
+                domainBossGroup.shutdownGracefully();
+                domainWorkerGroup.shutdownGracefully();
+            }
+        }
+    }
+
+    private static String domainSocketPathOf(String path) {
+        if (path == null) {
+            return null;
+        }
+        if (!NettyTransport.supportsDomainSocket()) {
+            log.warn("rpc.server.uds.path is set but unix domain socket requires epoll, which is not available");
+            return null;
         }
+        return path;
     }
 
 
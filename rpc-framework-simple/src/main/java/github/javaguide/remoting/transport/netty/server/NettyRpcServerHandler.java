@@ -1,14 +1,28 @@
 package github.javaguide.remoting.transport.netty.server;
 
+import github.javaguide.config.RpcConfig;
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.dispatcher.Dispatcher;
 import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.DispatcherTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.RpcResponseCodeEnum;
 import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.MethodTable;
+import github.javaguide.provider.ServiceProvider;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
 import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcCompactRequest;
+import github.javaguide.remoting.dto.RpcHandshake;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
 import github.javaguide.remoting.handler.RpcRequestHandler;
+import github.javaguide.remoting.transport.netty.codec.CodecNegotiator;
+import github.javaguide.utils.StringUtil;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -18,6 +32,9 @@ import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Customize the ChannelHandler of the server to process the data sent by the client.
  * <p>
@@ -30,10 +47,43 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class NettyRpcServerHandler extends ChannelInboundHandlerAdapter {
 
+    /**
+     * 服务未指定压缩方式时响应使用的压缩方式，通过rpc.compress配置，默认gzip
+     */
+    private static final byte COMPRESS_CODE = CodecNegotiator.compressCode(RpcConfig.getString(RpcConfigEnum.COMPRESS, null));
+    /**
+     * rpc.server.response.order=ordered 时同一连接上的响应按请求到达顺序写出，默认unordered（按完成顺序）
+     */
+    private static final boolean ORDERED_RESPONSES = "ordered".equalsIgnoreCase(RpcConfig.getString(RpcConfigEnum.RESPONSE_ORDER, "unordered"));
+    /**
+     * 服务未指定执行方式时使用的Dispatcher，通过rpc.dispatcher配置，默认shared；rpc.virtual.threads=true时默认virtual
+     */
+    private static final String DISPATCHER = RpcConfig.getString(RpcConfigEnum.DISPATCHER,
+            RpcConfig.getBoolean(RpcConfigEnum.VIRTUAL_THREADS, false) ? DispatcherTypeEnum.VIRTUAL.getName() : DispatcherTypeEnum.SHARED.getName());
+    /**
+     * 业务线程池队列已满或连接不可写时暂停读取该连接，通过rpc.server.read.suspend配置，默认true
+     */
+    private static final boolean READ_SUSPEND = RpcConfig.getBoolean(RpcConfigEnum.SERVER_READ_SUSPEND, true);
+
     private final RpcRequestHandler rpcRequestHandler;
+    private final ServiceProvider serviceProvider;
+    private final MethodTable methodTable;
+    /**
+     * 每个连接一个handler实例，也就有各自的ResponseWriter
+     */
+    private ResponseWriter responseWriter;
+    private ReadThrottle readThrottle;
 
     public NettyRpcServerHandler() {
         this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
+        this.serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+        this.methodTable = SingletonFactory.getInstance(MethodTable.class);
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        responseWriter = new ResponseWriter(ctx, ORDERED_RESPONSES);
+        readThrottle = new ReadThrottle(ctx, READ_SUSPEND);
     }
 
     @Override
@@ -42,29 +92,52 @@ public class NettyRpcServerHandler extends ChannelInboundHandlerAdapter {
             if (msg instanceof RpcMessage) {
                 log.info("server receive msg: [{}] ", msg);
                 byte messageType = ((RpcMessage) msg).getMessageType();
-                //构建responseMessage
-                RpcMessage rpcMessage = new RpcMessage();
-                rpcMessage.setCodec(SerializationTypeEnum.HESSIAN.getCode());
-                rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
+                //响应回写请求头中的requestId，客户端据此找到对应的future
+                long requestId = ((RpcMessage) msg).getRequestId();
                 if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
+                    RpcMessage rpcMessage = new RpcMessage();
+                    rpcMessage.setRequestId(requestId);
+                    rpcMessage.setCodec(SerializationTypeEnum.HESSIAN.getCode());
+                    rpcMessage.setCompress(CompressTypeEnum.NONE.getCode());
                     rpcMessage.setMessageType(RpcConstants.HEARTBEAT_RESPONSE_TYPE);
                     rpcMessage.setData(RpcConstants.PONG);
+                    ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+                } else if (messageType == RpcConstants.HANDSHAKE_REQUEST_TYPE) {
+                    //记录客户端支持的方式，并回复服务端支持的方式
+                    CodecNegotiator.setPeerCodecs(ctx.channel(), (RpcHandshake) ((RpcMessage) msg).getData());
+                    RpcMessage rpcMessage = CodecNegotiator.handshakeMessage(RpcConstants.HANDSHAKE_RESPONSE_TYPE, methodTable.getMethodIds());
+                    rpcMessage.setRequestId(requestId);
+                    ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
                 } else {
-                    RpcRequest rpcRequest = (RpcRequest) ((RpcMessage) msg).getData();
-                    // Execute the target method (the method the client needs to execute) and return the method result
-                    Object result = rpcRequestHandler.handle(rpcRequest);
-                    log.info(String.format("server get result: %s", result.toString()));
-                    rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
-                    if (ctx.channel().isActive() && ctx.channel().isWritable()) {
-                        RpcResponse<Object> rpcResponse = RpcResponse.success(result, rpcRequest.getRequestId());
-                        rpcMessage.setData(rpcResponse);
+                    byte requestCodec = ((RpcMessage) msg).getCodec();
+                    long sequence = responseWriter.nextSequence(requestId, requestCodec);
+                    RpcRequest rpcRequest;
+                    int methodId;
+                    if (messageType == RpcConstants.COMPACT_REQUEST_TYPE) {
+                        RpcCompactRequest compactRequest = (RpcCompactRequest) ((RpcMessage) msg).getData();
+                        rpcRequest = methodTable.toRpcRequest(compactRequest);
+                        methodId = compactRequest.getMethodId();
                     } else {
-                        RpcResponse<Object> rpcResponse = RpcResponse.fail(RpcResponseCodeEnum.FAIL);
-                        rpcMessage.setData(rpcResponse);
-                        log.error("not writable now, message dropped");
+                        rpcRequest = (RpcRequest) ((RpcMessage) msg).getData();
+                        methodId = methodTable.methodId(rpcRequest);
+                    }
+                    if (rpcRequest == null) {
+                        log.error("unknown method id in request [{}]", msg);
+                        writeFailure(sequence, requestId, requestCodec);
+                        return;
                     }
+                    RpcServiceConfig rpcServiceConfig = serviceConfig(rpcRequest.getRpcServiceName());
+                    Dispatcher dispatcher = dispatcher(rpcServiceConfig);
+                    try {
+                        // 业务方法不在IO线程上执行（direct除外），慢方法不会阻塞同一连接上的其他请求
+                        dispatcher.dispatch(rpcRequest.getRpcServiceName(),
+                                () -> invoke(ctx, sequence, requestId, requestCodec, rpcRequest, methodId, rpcServiceConfig));
+                    } catch (RejectedExecutionException e) {
+                        logRejected(dispatcher, rpcRequest.getRpcServiceName());
+                        writeFailure(sequence, requestId, requestCodec);
+                    }
+                    readThrottle.afterDispatch(dispatcher, rpcRequest.getRpcServiceName());
                 }
-                ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
             }
         } finally {
             //Ensure that ByteBuf is released, otherwise there may be memory leaks
@@ -72,6 +145,107 @@ public class NettyRpcServerHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    /**
+     * Execute the target method (the method the client needs to execute) and write the response.
+     * 服务实现返回CompletableFuture时，在其完成后再回写响应，不占用当前线程等待；
+     * 构建响应出错时回复失败，保证每个序号都有响应写出，ordered模式下不会挡住之后的响应
+     */
+    private void invoke(ChannelHandlerContext ctx, long sequence, long requestId, byte requestCodec, RpcRequest rpcRequest,
+                        int methodId, RpcServiceConfig rpcServiceConfig) {
+        CompletableFuture<Object> future;
+        try {
+            future = rpcRequestHandler.handleAsync(rpcRequest, methodId);
+        } catch (Throwable e) {
+            log.error("server invoke [{}] failed", rpcRequest.getRpcServiceName(), e);
+            writeFailure(sequence, requestId, requestCodec);
+            return;
+        }
+        future.whenComplete((result, throwable) -> {
+            RpcMessage rpcMessage;
+            try {
+                rpcMessage = newResponseMessage(ctx, requestId, requestCodec, rpcServiceConfig);
+                rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
+                if (throwable != null) {
+                    log.error("server invoke [{}] failed", rpcRequest.getRpcServiceName(), throwable);
+                    rpcMessage.setData(RpcResponse.fail(RpcResponseCodeEnum.FAIL));
+                } else if (ctx.channel().isActive() && (READ_SUSPEND || ctx.channel().isWritable())) {
+                    // 暂停读取时不可写的连接上不会再有新请求，已接收请求的响应照常写出，发送缓冲区中最多堆积这些响应
+                    log.info("server get result: [{}]", result);
+                    rpcMessage.setData(RpcResponse.success(result));
+                } else {
+                    rpcMessage.setData(RpcResponse.fail(RpcResponseCodeEnum.FAIL));
+                    log.error("not writable now, message dropped");
+                }
+            } catch (Throwable e) {
+                log.error("build response of [{}] failed", rpcRequest.getRpcServiceName(), e);
+                rpcMessage = ResponseWriter.failure(requestId, requestCodec);
+            }
+            responseWriter.write(sequence, rpcMessage);
+        });
+    }
+
+    /**
+     * 请求无法执行（方法id未知、线程池已满）时直接回复失败
+     */
+    private void writeFailure(long sequence, long requestId, byte requestCodec) {
+        responseWriter.write(sequence, ResponseWriter.failure(requestId, requestCodec));
+    }
+
+    /**
+     * 服务指定的Dispatcher，未指定时使用rpc.dispatcher；共享内存传输的服务端也使用它
+     */
+    public static Dispatcher dispatcher(RpcServiceConfig rpcServiceConfig) {
+        String name = rpcServiceConfig == null || StringUtil.isBlank(rpcServiceConfig.getDispatcher())
+                ? DISPATCHER : rpcServiceConfig.getDispatcher();
+        return ExtensionLoader.getExtensionLoader(Dispatcher.class).getExtension(name);
+    }
+
+    /**
+     * 请求因Dispatcher队列已满被拒绝、回复失败时记录Dispatcher的排队与拒绝情况；共享内存传输的服务端也使用它
+     */
+    public static void logRejected(Dispatcher dispatcher, String rpcServiceName) {
+        log.warn("request of [{}] rejected by dispatcher [{}], queue usage [{}], queue depth [{}], rejected [{}] in total",
+                rpcServiceName, dispatcher.getClass().getSimpleName(), dispatcher.queueUsage(rpcServiceName),
+                dispatcher.queueDepth(), dispatcher.rejectedCount());
+    }
+
+    /**
+     * 构建responseMessage：默认沿用请求的序列化方式，服务通过@RpcService或rpc.properties指定时使用指定的方式，
+     * 并按握手结果退回到客户端支持的方式
+     */
+    private static RpcMessage newResponseMessage(ChannelHandlerContext ctx, long requestId, byte requestCodec, RpcServiceConfig rpcServiceConfig) {
+        byte codec = requestCodec;
+        byte compress = COMPRESS_CODE;
+        if (rpcServiceConfig != null) {
+            if (!StringUtil.isBlank(rpcServiceConfig.getSerialization())) {
+                codec = CodecNegotiator.serializationCode(rpcServiceConfig.getSerialization());
+            }
+            if (!StringUtil.isBlank(rpcServiceConfig.getCompress())) {
+                compress = CodecNegotiator.compressCode(rpcServiceConfig.getCompress());
+            }
+        }
+        RpcMessage rpcMessage = new RpcMessage();
+        rpcMessage.setRequestId(requestId);
+        rpcMessage.setCodec(codec == requestCodec ? codec : CodecNegotiator.negotiateSerialization(ctx.channel(), codec));
+        rpcMessage.setCompress(CodecNegotiator.negotiateCompress(ctx.channel(), compress));
+        return rpcMessage;
+    }
+
+    private RpcServiceConfig serviceConfig(String rpcServiceName) {
+        try {
+            return serviceProvider.getServiceConfig(rpcServiceName);
+        } catch (RpcException e) {
+            //服务不存在时调用本身会失败，响应沿用默认方式
+            return null;
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        readThrottle.writabilityChanged();
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         if (evt instanceof IdleStateEvent) {
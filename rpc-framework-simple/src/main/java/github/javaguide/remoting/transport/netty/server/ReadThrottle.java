@@ -0,0 +1,85 @@
+package github.javaguide.remoting.transport.netty.server;
+
+import github.javaguide.dispatcher.Dispatcher;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandlerContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个连接上的读取节流。
+ * 业务线程池队列已满，或连接不可写（客户端读取响应慢）时暂停读取该连接（autoRead=false），
+ * 请求留在内核接收缓冲区中，由TCP流控把压力传回客户端，而不是继续读入后被拒绝、或在发送缓冲区中堆积响应；
+ * 队列降到一半以下且连接恢复可写后继续读取。只在event loop线程上访问
+ */
+@Slf4j
+class ReadThrottle {
+    private static final long CHECK_INTERVAL_MILLIS = 5;
+    private static final double RESUME_QUEUE_USAGE = 0.5;
+
+    private final ChannelHandlerContext ctx;
+    private final boolean enabled;
+    /**
+     * 队列已满的服务及其Dispatcher，队列恢复前不再检查其他服务
+     */
+    private Dispatcher saturatedDispatcher;
+    private String saturatedService;
+    private boolean unwritable;
+
+    ReadThrottle(ChannelHandlerContext ctx, boolean enabled) {
+        this.ctx = ctx;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 每个请求分派（或被拒绝）后调用
+     */
+    void afterDispatch(Dispatcher dispatcher, String rpcServiceName) {
+        if (!enabled || saturatedDispatcher != null || dispatcher.queueUsage(rpcServiceName) < 1) {
+            return;
+        }
+        saturatedDispatcher = dispatcher;
+        saturatedService = rpcServiceName;
+        update();
+        scheduleCheck();
+    }
+
+    void writabilityChanged() {
+        if (!enabled) {
+            return;
+        }
+        unwritable = !ctx.channel().isWritable();
+        update();
+    }
+
+    /**
+     * 队列使用率没有对应的事件通知，暂停期间定时检查
+     */
+    private void scheduleCheck() {
+        ctx.executor().schedule(this::check, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void check() {
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+        if (saturatedDispatcher.queueUsage(saturatedService) > RESUME_QUEUE_USAGE) {
+            scheduleCheck();
+            return;
+        }
+        saturatedDispatcher = null;
+        saturatedService = null;
+        update();
+    }
+
+    private void update() {
+        boolean autoRead = !unwritable && saturatedDispatcher == null;
+        ChannelConfig config = ctx.channel().config();
+        if (config.isAutoRead() != autoRead) {
+            log.info("{} reading [{}], dispatcher queue full of [{}], unwritable [{}]", autoRead ? "resume" : "suspend",
+                    ctx.channel().remoteAddress(), saturatedService, unwritable);
+            config.setAutoRead(autoRead);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package github.javaguide.remoting.transport.netty.server;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcResponse;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个连接上的响应回写。
+ * 同一连接上的请求并发执行，响应按完成顺序写出（客户端按requestId关联），或按请求到达顺序写出（ordered）；
+ * 响应只write，再在event loop上安排一次flush，同一时间完成的一批响应合并为一次系统调用；
+ * 业务线程完成的响应连同flush的安排一起交给event loop执行，flush任务总是排在write之后。
+ * ordered模式下一个请求迟迟没有响应会挡住之后所有的响应，超过期限后为它写出失败响应，之后到达的响应丢弃
+ */
+@Slf4j
+class ResponseWriter {
+    private final ChannelHandlerContext ctx;
+    private final boolean ordered;
+    private final long timeoutNanos;
+    private final Runnable flushTask;
+    /**
+     * 以下字段只在event loop线程上访问
+     * flushScheduled: 已安排了尚未执行的flush任务
+     * nextSequence: 下一个到达的请求的序号；nextToWrite: ordered模式下下一个要写出的序号
+     * deadlines: ordered模式下序号从nextToWrite开始的尚未写出的请求，按序号排列
+     */
+    private boolean flushScheduled;
+    private long nextSequence;
+    private long nextToWrite;
+    private final Map<Long, RpcMessage> pending = new HashMap<>();
+    private final ArrayDeque<Deadline> deadlines = new ArrayDeque<>();
+    private ScheduledFuture<?> timeoutTask;
+
+    ResponseWriter(ChannelHandlerContext ctx, boolean ordered) {
+        this(ctx, ordered, TimeUnit.SECONDS.toMillis(RpcConstants.MAX_RESPONSE_TIMEOUT));
+    }
+
+    /**
+     * @param timeoutMillis ordered模式下等待一个响应的最长时间
+     */
+    ResponseWriter(ChannelHandlerContext ctx, boolean ordered, long timeoutMillis) {
+        this.ctx = ctx;
+        this.ordered = ordered;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.flushTask = () -> {
+            flushScheduled = false;
+            ctx.flush();
+        };
+    }
+
+    /**
+     * 在channelRead（event loop线程）中为每个请求分配序号
+     *
+     * @param requestId 超时时写出的失败响应使用
+     * @param codec     超时时写出的失败响应使用
+     */
+    long nextSequence(long requestId, byte codec) {
+        if (ordered) {
+            deadlines.addLast(new Deadline(System.nanoTime() + timeoutNanos, requestId, codec));
+            if (timeoutTask == null) {
+                scheduleTimeoutCheck(timeoutNanos);
+            }
+        }
+        return nextSequence++;
+    }
+
+    /**
+     * 可在任意线程调用
+     *
+     * @param sequence 请求的序号，仅ordered模式使用
+     */
+    void write(long sequence, RpcMessage rpcMessage) {
+        EventLoop eventLoop = ctx.channel().eventLoop();
+        if (eventLoop.inEventLoop()) {
+            writeInEventLoop(sequence, rpcMessage);
+        } else {
+            eventLoop.execute(() -> writeInEventLoop(sequence, rpcMessage));
+        }
+    }
+
+    private void writeInEventLoop(long sequence, RpcMessage rpcMessage) {
+        if (ordered) {
+            writeInOrder(sequence, rpcMessage);
+        } else {
+            ctx.write(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * 请求无法执行或响应无法构建时回复的失败响应
+     */
+    static RpcMessage failure(long requestId, byte codec) {
+        RpcMessage rpcMessage = new RpcMessage();
+        rpcMessage.setRequestId(requestId);
+        rpcMessage.setCodec(codec);
+        rpcMessage.setCompress(CompressTypeEnum.NONE.getCode());
+        rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
+        rpcMessage.setData(RpcResponse.fail(RpcResponseCodeEnum.FAIL));
+        return rpcMessage;
+    }
+
+    private void writeInOrder(long sequence, RpcMessage rpcMessage) {
+        if (sequence < nextToWrite) {
+            // 已超时并回复过失败
+            log.warn("response of request [{}] arrived after timeout, dropped", rpcMessage.getRequestId());
+            return;
+        }
+        pending.put(sequence, rpcMessage);
+        writePending();
+    }
+
+    private void writePending() {
+        RpcMessage next;
+        while ((next = pending.remove(nextToWrite)) != null) {
+            writeNext(next);
+        }
+        scheduleFlush();
+    }
+
+    private void writeNext(RpcMessage rpcMessage) {
+        ctx.write(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+        deadlines.pollFirst();
+        nextToWrite++;
+    }
+
+    private void scheduleTimeoutCheck(long delayNanos) {
+        timeoutTask = ctx.executor().schedule(this::checkTimeout, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 为已超时的队首请求写出失败响应，并写出排在它后面已完成的响应
+     */
+    private void checkTimeout() {
+        timeoutTask = null;
+        if (!ctx.channel().isActive()) {
+            deadlines.clear();
+            pending.clear();
+            return;
+        }
+        long now = System.nanoTime();
+        Deadline head;
+        while ((head = deadlines.peekFirst()) != null && head.nanos - now <= 0) {
+            log.error("no response for request [{}] within [{}] ms, reply failure", head.requestId, TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+            writeNext(failure(head.requestId, head.codec));
+            writePending();
+        }
+        if (head != null) {
+            scheduleTimeoutCheck(head.nanos - now);
+        }
+    }
+
+    /**
+     * 只在event loop上调用：flush任务排在已执行的write之后，期间完成的响应都由这一次flush写出
+     */
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            ctx.channel().eventLoop().execute(flushTask);
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Deadline {
+        private final long nanos;
+        private final long requestId;
+        private final byte codec;
+    }
+}
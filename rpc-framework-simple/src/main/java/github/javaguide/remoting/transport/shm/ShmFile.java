@@ -0,0 +1,69 @@
+package github.javaguide.remoting.transport.shm;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 客户端与服务端共享的内存映射文件，内含两个环：请求环(客户端写、服务端读)在前，响应环(服务端写、客户端读)在后。
+ * 建议放在 /dev/shm 等内存文件系统上，避免脏页回写磁盘
+ */
+@Slf4j
+final class ShmFile {
+    /**
+     * 两个环各自持有映射的引用，调用方只保留环时映射也不会被回收解除
+     */
+    private final ShmRing requestRing;
+    private final ShmRing responseRing;
+
+    private ShmFile(MappedByteBuffer buffer, int ringCapacity) {
+        this.requestRing = new ShmRing(buffer, 0, ringCapacity);
+        this.responseRing = new ShmRing(buffer, ShmRing.HEADER_SIZE + ringCapacity, ringCapacity);
+    }
+
+    /**
+     * 服务端创建（或覆盖）共享文件并清空两个环
+     *
+     * @param ringCapacity 每个环的data区大小，向上取整为2的幂，不小于 {@link ShmRing#MIN_CAPACITY}
+     */
+    static ShmFile create(Path path, int ringCapacity) throws IOException {
+        if (ringCapacity > ShmRing.MAX_CAPACITY) {
+            throw new IllegalArgumentException("rpc.shm.capacity must not exceed " + ShmRing.MAX_CAPACITY + ": " + ringCapacity);
+        }
+        int capacity = ringCapacity <= ShmRing.MIN_CAPACITY ? ShmRing.MIN_CAPACITY : Integer.highestOneBit(ringCapacity - 1) << 1;
+        long size = 2L * (ShmRing.HEADER_SIZE + capacity);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            ShmFile shmFile = new ShmFile(buffer, capacity);
+            shmFile.requestRing.reset();
+            shmFile.responseRing.reset();
+            log.info("shared memory file [{}] created, ring capacity [{}]", path, capacity);
+            return shmFile;
+        }
+    }
+
+    /**
+     * 客户端打开服务端已创建的共享文件，环的大小由文件大小推算
+     */
+    static ShmFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            int capacity = (int) (size / 2 - ShmRing.HEADER_SIZE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new ShmFile(buffer, capacity);
+        }
+    }
+
+    ShmRing requestRing() {
+        return requestRing;
+    }
+
+    ShmRing responseRing() {
+        return responseRing;
+    }
+}
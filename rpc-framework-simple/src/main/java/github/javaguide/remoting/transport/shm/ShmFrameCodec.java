@@ -0,0 +1,46 @@
+package github.javaguide.remoting.transport.shm;
+
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * 共享内存中的帧与TCP上的帧格式相同，直接复用 {@link RpcMessageEncoder}/{@link RpcMessageDecoder}。
+ * 编码与解码各自串行，编码可被多个线程调用
+ */
+final class ShmFrameCodec {
+    private final EmbeddedChannel encoder = new EmbeddedChannel(new RpcMessageEncoder());
+    private final EmbeddedChannel decoder = new EmbeddedChannel(new RpcMessageDecoder());
+
+    byte[] encode(RpcMessage rpcMessage) {
+        synchronized (encoder) {
+            encoder.writeOutbound(rpcMessage);
+            ByteBuf frame = encoder.readOutbound();
+            try {
+                if (frame == null || !frame.isReadable()) {
+                    throw new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE, "encode failed: " + rpcMessage);
+                }
+                byte[] bytes = new byte[frame.readableBytes()];
+                frame.readBytes(bytes);
+                return bytes;
+            } finally {
+                if (frame != null) {
+                    frame.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * 只在消费者线程上调用
+     */
+    RpcMessage decode(byte[] frame) {
+        decoder.writeInbound(Unpooled.wrappedBuffer(frame));
+        return decoder.readInbound();
+    }
+}
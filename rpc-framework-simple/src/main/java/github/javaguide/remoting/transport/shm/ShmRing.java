@@ -0,0 +1,159 @@
+package github.javaguide.remoting.transport.shm;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 映射到共享内存上的单生产者单消费者环形缓冲区，生产者与消费者可以在不同进程中。
+ * <pre>
+ *   0          8                 64         72                128                     128 + capacity
+ *   +----------+-----------------+----------+-----------------+-----------------------+
+ *   | write pos|     padding     | read pos |     padding     |  data (records)       |
+ *   +----------+-----------------+----------+-----------------+-----------------------+
+ *   record: 4B length + frame bytes，按8字节对齐，frame可以跨越data末尾回绕到开头
+ * </pre>
+ * 两个位置只增不减，各自只由一方写入，写入使用有序写（store-release）、读取对方的位置使用volatile读（见 {@link OrderedAccess}），
+ * 保证消费者看到新的写位置时record内容已经可见；record的读写使用netty的 {@link PlatformDependent}
+ */
+final class ShmRing {
+    static final int HEADER_SIZE = 128;
+    /**
+     * data区的最小与最大大小
+     */
+    static final int MIN_CAPACITY = 8;
+    static final int MAX_CAPACITY = 1 << 30;
+    private static final int WRITE_POSITION_OFFSET = 0;
+    private static final int READ_POSITION_OFFSET = 64;
+    private static final int LENGTH_SIZE = 4;
+    private static final int RECORD_ALIGNMENT = 8;
+
+    /**
+     * 只保存地址不足以保持映射，持有buffer的引用，避免映射在环仍被使用时被回收解除
+     */
+    private final ByteBuffer buffer;
+    private final long writePositionAddress;
+    private final long readPositionAddress;
+    private final long dataAddress;
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * @param buffer   映射的共享内存，需要是direct buffer
+     * @param offset   本环在buffer中的起始位置，需要按64字节对齐
+     * @param capacity data区大小，需要是2的幂
+     */
+    ShmRing(ByteBuffer buffer, int offset, int capacity) {
+        if (Integer.bitCount(capacity) != 1 || capacity < MIN_CAPACITY) {
+            throw new IllegalArgumentException("ring capacity must be a power of two: " + capacity);
+        }
+        this.buffer = buffer;
+        long address = PlatformDependent.directBufferAddress(buffer) + offset;
+        this.writePositionAddress = address + WRITE_POSITION_OFFSET;
+        this.readPositionAddress = address + READ_POSITION_OFFSET;
+        this.dataAddress = address + HEADER_SIZE;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 该长度的帧能否放入环中，放不下的帧 {@link #offer} 会抛出异常
+     */
+    boolean fits(int frameLength) {
+        // capacity是8的倍数，4B长度 + frame不超过capacity时对齐后也不超过
+        return frameLength >= 0 && frameLength <= capacity - LENGTH_SIZE;
+    }
+
+    /**
+     * 清空读写位置，只能在两端都未使用时调用
+     */
+    void reset() {
+        OrderedAccess.putOrderedLong(writePositionAddress, 0L);
+        OrderedAccess.putOrderedLong(readPositionAddress, 0L);
+    }
+
+    /**
+     * 生产者写入一帧，剩余空间不足时返回false。多个线程写入同一个环时需要由调用方加锁
+     */
+    boolean offer(byte[] frame) {
+        if (!fits(frame.length)) {
+            throw new IllegalArgumentException("frame of " + frame.length + " bytes exceeds ring capacity " + capacity);
+        }
+        int recordLength = recordLength(frame.length);
+        long write = OrderedAccess.getLongVolatile(writePositionAddress);
+        long read = OrderedAccess.getLongVolatile(readPositionAddress);
+        if (write + recordLength - read > capacity) {
+            return false;
+        }
+        int index = (int) (write & mask);
+        PlatformDependent.putInt(dataAddress + index, frame.length);
+        copyIn(frame, (index + LENGTH_SIZE) & mask);
+        OrderedAccess.putOrderedLong(writePositionAddress, write + recordLength);
+        return true;
+    }
+
+    /**
+     * 消费者取出一帧，没有数据时返回null。只能由一个线程调用。
+     * 共享内存可能被对端写坏，长度不合法时丢弃环中所有已写入的数据并抛出IllegalStateException，之后的帧可以继续读取
+     */
+    byte[] poll() {
+        long read = OrderedAccess.getLongVolatile(readPositionAddress);
+        long write = OrderedAccess.getLongVolatile(writePositionAddress);
+        if (read == write) {
+            return null;
+        }
+        int index = (int) (read & mask);
+        int length = PlatformDependent.getInt(dataAddress + index);
+        if (!fits(length) || recordLength(length) > write - read) {
+            OrderedAccess.putOrderedLong(readPositionAddress, write);
+            throw new IllegalStateException("invalid frame length " + length + " in ring of capacity " + capacity
+                    + ", " + (write - read) + " bytes discarded");
+        }
+        byte[] frame = new byte[length];
+        copyOut(frame, (index + LENGTH_SIZE) & mask);
+        OrderedAccess.putOrderedLong(readPositionAddress, read + recordLength(length));
+        return frame;
+    }
+
+    /**
+     * 忙等时的退避：先自旋，再让出CPU，最后短暂park，兼顾微秒级延迟与空闲时的CPU占用
+     *
+     * @return 下一次调用时传入的idleCount
+     */
+    static int idle(int idleCount) {
+        if (idleCount < 100) {
+            return idleCount + 1;
+        }
+        if (idleCount < 200) {
+            Thread.yield();
+            return idleCount + 1;
+        }
+        LockSupport.parkNanos(50_000);
+        return idleCount;
+    }
+
+    private void copyIn(byte[] frame, int index) {
+        int first = Math.min(frame.length, capacity - index);
+        PlatformDependent.copyMemory(frame, 0, dataAddress + index, first);
+        if (first < frame.length) {
+            PlatformDependent.copyMemory(frame, first, dataAddress, frame.length - first);
+        }
+    }
+
+    private void copyOut(byte[] frame, int index) {
+        int first = Math.min(frame.length, capacity - index);
+        PlatformDependent.copyMemory(dataAddress + index, frame, 0, first);
+        if (first < frame.length) {
+            PlatformDependent.copyMemory(dataAddress, frame, first, frame.length - first);
+        }
+    }
+
+    private static int recordLength(int frameLength) {
+        return (LENGTH_SIZE + frameLength + RECORD_ALIGNMENT - 1) & -RECORD_ALIGNMENT;
+    }
+}
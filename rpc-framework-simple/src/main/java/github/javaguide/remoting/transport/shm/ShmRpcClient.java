@@ -0,0 +1,141 @@
+package github.javaguide.remoting.transport.shm;
+
+import github.javaguide.config.RpcConfig;
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.remoting.transport.netty.client.ClientUnprocessedRequests;
+import github.javaguide.remoting.transport.netty.codec.CodecNegotiator;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过共享内存与同一主机上的服务端通信，服务端需要配置相同的 rpc.shm.path。
+ * 请求写入请求环，专门的线程轮询响应环，按协议头中的requestId唤醒 {@link ClientUnprocessedRequests} 中的future。
+ * 一个共享文件只能对应一个客户端进程
+ *
+ * @see ShmRpcServer
+ */
+@Slf4j
+public final class ShmRpcClient implements RpcRequestTransport {
+    /**
+     * 请求使用的序列化方式，通过rpc.serialization配置，默认hessian；同一主机上不压缩
+     */
+    private static final byte SERIALIZATION_CODE = CodecNegotiator.serializationCode(RpcConfig.getString(RpcConfigEnum.SERIALIZATION, null));
+
+    private final ShmRing requestRing;
+    private final ShmRing responseRing;
+    private final ShmFrameCodec codec = new ShmFrameCodec();
+    private final ClientUnprocessedRequests clientUnprocessedRequests;
+    private volatile boolean closed;
+
+    public ShmRpcClient() {
+        this(RpcConfig.getString(RpcConfigEnum.SHM_PATH, null));
+    }
+
+    public ShmRpcClient(String path) {
+        if (path == null) {
+            throw new IllegalStateException("rpc.shm.path is required by the shm transport");
+        }
+        ShmFile shmFile;
+        try {
+            shmFile = ShmFile.open(Paths.get(path));
+        } catch (IOException e) {
+            throw new RpcException(RpcErrorMessageEnum.CLIENT_CONNECT_SERVER_FAILURE.getMessage() + ":" + path, e);
+        }
+        this.requestRing = shmFile.requestRing();
+        this.responseRing = shmFile.responseRing();
+        this.clientUnprocessedRequests = SingletonFactory.getInstance(ClientUnprocessedRequests.class);
+        Thread reader = ThreadPoolFactoryUtil.createThreadFactory("rpc-shm-client", true).newThread(this::readResponses);
+        reader.start();
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse<Object>> sendRpcRequest(RpcRequest rpcRequest) {
+        return sendRpcRequest(rpcRequest, TimeUnit.SECONDS.toMillis(RpcConstants.MAX_RESPONSE_TIMEOUT));
+    }
+
+    /**
+     * 请求环已满时等待服务端消费，超过timeoutMillis仍写不进去则失败
+     */
+    public CompletableFuture<RpcResponse<Object>> sendRpcRequest(RpcRequest rpcRequest, long timeoutMillis) {
+        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+        long requestId = clientUnprocessedRequests.nextRequestId();
+        RpcMessage rpcMessage = RpcMessage.builder()
+                .data(rpcRequest)
+                .codec(SERIALIZATION_CODE)
+                .compress(CompressTypeEnum.NONE.getCode())
+                .requestId(requestId)
+                .messageType(RpcConstants.REQUEST_TYPE).build();
+        byte[] frame;
+        try {
+            frame = codec.encode(rpcMessage);
+        } catch (RpcException e) {
+            resultFuture.completeExceptionally(e);
+            return resultFuture;
+        }
+        if (!requestRing.fits(frame.length)) {
+            resultFuture.completeExceptionally(new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE,
+                    "request of " + frame.length + " bytes exceeds shared memory ring capacity " + requestRing.capacity()));
+            return resultFuture;
+        }
+        clientUnprocessedRequests.put(requestId, resultFuture, timeoutMillis);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (requestRing) {
+            int idleCount = 0;
+            while (!requestRing.offer(frame)) {
+                if (System.nanoTime() - deadline > 0) {
+                    clientUnprocessedRequests.remove(requestId, resultFuture);
+                    resultFuture.completeExceptionally(new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_TIMEOUT,
+                            "shared memory request ring is full"));
+                    return resultFuture;
+                }
+                idleCount = ShmRing.idle(idleCount);
+            }
+        }
+        return resultFuture;
+    }
+
+    public void close() {
+        closed = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readResponses() {
+        int idleCount = 0;
+        while (!closed) {
+            byte[] frame;
+            try {
+                frame = responseRing.poll();
+            } catch (IllegalStateException e) {
+                log.error("shared memory response ring is corrupted", e);
+                continue;
+            }
+            if (frame == null) {
+                idleCount = ShmRing.idle(idleCount);
+                continue;
+            }
+            idleCount = 0;
+            try {
+                RpcMessage rpcMessage = codec.decode(frame);
+                if (rpcMessage != null && rpcMessage.getMessageType() == RpcConstants.RESPONSE_TYPE) {
+                    clientUnprocessedRequests.complete(rpcMessage.getRequestId(), (RpcResponse<Object>) rpcMessage.getData());
+                }
+            } catch (Exception e) {
+                log.error("discard undecodable response frame", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package github.javaguide.remoting.transport.shm;
+
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.dispatcher.Dispatcher;
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.MethodTable;
+import github.javaguide.provider.ServiceProvider;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.handler.RpcRequestHandler;
+import github.javaguide.remoting.transport.netty.server.NettyRpcServerHandler;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享内存传输的服务端：一个线程轮询请求环，业务方法与netty一样交给服务对应的 {@link Dispatcher} 执行，
+ * 响应写入响应环。与netty监听同时运行，由 rpc.shm.path 开启
+ *
+ * @see ShmRpcClient
+ */
+@Slf4j
+public final class ShmRpcServer {
+    /**
+     * 客户端长时间不消费响应时，写入最多等待的时间，超过后丢弃该响应，客户端的请求会超时
+     */
+    private static final long RESPONSE_OFFER_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(RpcConstants.MAX_RESPONSE_TIMEOUT);
+
+    private final ShmRing requestRing;
+    private final ShmRing responseRing;
+    private final ShmFrameCodec codec = new ShmFrameCodec();
+    private final RpcRequestHandler rpcRequestHandler;
+    private final ServiceProvider serviceProvider;
+    private final MethodTable methodTable;
+    private volatile boolean closed;
+
+    /**
+     * @param path         共享文件路径，已存在时覆盖
+     * @param ringCapacity 每个方向环形缓冲区的大小(字节)
+     */
+    public ShmRpcServer(String path, int ringCapacity) throws IOException {
+        ShmFile shmFile = ShmFile.create(Paths.get(path), ringCapacity);
+        this.requestRing = shmFile.requestRing();
+        this.responseRing = shmFile.responseRing();
+        this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
+        this.serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+        this.methodTable = SingletonFactory.getInstance(MethodTable.class);
+    }
+
+    public void start() {
+        ThreadPoolFactoryUtil.createThreadFactory("rpc-shm-server", true).newThread(this::readRequests).start();
+    }
+
+    public void close() {
+        closed = true;
+    }
+
+    private void readRequests() {
+        int idleCount = 0;
+        while (!closed) {
+            byte[] frame;
+            try {
+                frame = requestRing.poll();
+            } catch (IllegalStateException e) {
+                log.error("shared memory request ring is corrupted", e);
+                continue;
+            }
+            if (frame == null) {
+                idleCount = ShmRing.idle(idleCount);
+                continue;
+            }
+            idleCount = 0;
+            RpcMessage rpcMessage;
+            try {
+                rpcMessage = codec.decode(frame);
+            } catch (Exception e) {
+                log.error("discard undecodable request frame", e);
+                continue;
+            }
+            if (rpcMessage != null && rpcMessage.getMessageType() == RpcConstants.REQUEST_TYPE) {
+                handle(rpcMessage);
+            }
+        }
+    }
+
+    private void handle(RpcMessage requestMessage) {
+        RpcRequest rpcRequest = (RpcRequest) requestMessage.getData();
+        RpcServiceConfig rpcServiceConfig = serviceConfig(rpcRequest.getRpcServiceName());
+        Dispatcher dispatcher = NettyRpcServerHandler.dispatcher(rpcServiceConfig);
+        try {
+            dispatcher.dispatch(rpcRequest.getRpcServiceName(), () -> invoke(requestMessage, rpcRequest));
+        } catch (RejectedExecutionException e) {
+            NettyRpcServerHandler.logRejected(dispatcher, rpcRequest.getRpcServiceName());
+            writeResponse(requestMessage, RpcResponse.fail(RpcResponseCodeEnum.FAIL));
+        }
+    }
+
+    private void invoke(RpcMessage requestMessage, RpcRequest rpcRequest) {
+        rpcRequestHandler.handleAsync(rpcRequest, methodTable.methodId(rpcRequest)).whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                log.error("server invoke [{}] failed", rpcRequest.getRpcServiceName(), throwable);
+                writeResponse(requestMessage, RpcResponse.fail(RpcResponseCodeEnum.FAIL));
+            } else {
+                writeResponse(requestMessage, RpcResponse.success(result));
+            }
+        });
+    }
+
+    /**
+     * 响应沿用请求的序列化方式，同一主机上不压缩；多个业务线程写同一个环，需要加锁。
+     * 响应无法编码或超过环的容量时回复失败，客户端不必等到超时
+     */
+    private void writeResponse(RpcMessage requestMessage, RpcResponse<Object> rpcResponse) {
+        byte[] frame = encodeResponse(requestMessage, rpcResponse);
+        if (frame == null || !responseRing.fits(frame.length)) {
+            log.error("response of request [{}] can not be written to shared memory ring of capacity [{}], reply failure",
+                    requestMessage.getRequestId(), responseRing.capacity());
+            frame = encodeResponse(requestMessage, RpcResponse.fail(RpcResponseCodeEnum.FAIL));
+            if (frame == null || !responseRing.fits(frame.length)) {
+                return;
+            }
+        }
+        long deadline = System.nanoTime() + RESPONSE_OFFER_TIMEOUT_NANOS;
+        synchronized (responseRing) {
+            int idleCount = 0;
+            while (!responseRing.offer(frame)) {
+                if (closed || System.nanoTime() - deadline > 0) {
+                    log.error("shared memory response ring is full, message dropped");
+                    return;
+                }
+                idleCount = ShmRing.idle(idleCount);
+            }
+        }
+    }
+
+    private byte[] encodeResponse(RpcMessage requestMessage, RpcResponse<Object> rpcResponse) {
+        RpcMessage rpcMessage = RpcMessage.builder()
+                .data(rpcResponse)
+                .codec(requestMessage.getCodec())
+                .compress(CompressTypeEnum.NONE.getCode())
+                .requestId(requestMessage.getRequestId())
+                .messageType(RpcConstants.RESPONSE_TYPE).build();
+        try {
+            return codec.encode(rpcMessage);
+        } catch (RpcException e) {
+            log.error("encode response failed", e);
+            return null;
+        }
+    }
+
+    private RpcServiceConfig serviceConfig(String rpcServiceName) {
+        try {
+            return serviceProvider.getServiceConfig(rpcServiceName);
+        } catch (RpcException e) {
+            return null;
+        }
+    }
+}
@@ -1,13 +0,0 @@
-package github.javaguide.requestIdGenerate;
-
-import github.javaguide.extension.SPI;
-
-/**
- * @author gusang
- * @createTime on 2024/6/29
- */
-
-@SPI
-public interface RequestIdGenerate {
-    String getRequestId();
-}
@@ -1,196 +0,0 @@
-package github.javaguide.requestIdGenerate.requestIdGenerateStrategy;
-
-
-/*
- * Licensed to the Apache Software Foundation (ASF) under one or more
- * contributor license agreements.  See the NOTICE file distributed with
- * this work for additional information regarding copyright ownership.
- * The ASF licenses this file to You under the Apache License, Version 2.0
- * (the "License"); you may not use this file except in compliance with
- * the License.  You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-import java.net.NetworkInterface;
-import java.util.Enumeration;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicLong;
-
-/**
- * 功能描述：改良版snowflake算法，优化如下：
- *  1.64bit(1b sign + 10b workerId + 41b timestamp + 12b sequence)，交换了timestamp与workerId的次序，并且将（41b timestamp + 12b sequence）作为一个整体，
- *    这个整数是递增的，在1ms内，能够生成2^12个递增的分布式ID，配合第2.点，优化了空间局部性，使得生成的ID都是连续的。
- *  2.解决了“时间回拨”问题，生成ID不再依赖于时间戳，时间戳初始时会被赋值，当生成ID数量大于2^12个后，高位41b timestamp+1，低位12b sequence置0即可，类似整数的高低位进位。
- *
- * @author: gusang
- * @date: 2024年07月25日 21:36
- */
-
-public class SeataSnowflake {
-
-    /**
-     * Start time cut (2020-05-03)
-     */
-    private final long twepoch = 1588435200000L;
-
-    /**
-     * The number of bits occupied by workerId
-     */
-    private final int workerIdBits = 10;
-
-    /**
-     * The number of bits occupied by timestamp
-     */
-    private final int timestampBits = 41;
-
-    /**
-     * The number of bits occupied by sequence
-     */
-    private final int sequenceBits = 12;
-
-    /**
-     * Maximum supported machine id, the result is 1023
-     */
-    private final int maxWorkerId = ~(-1 << workerIdBits);
-
-    /**
-     * business meaning: machine ID (0 ~ 1023)
-     * actual layout in memory:
-     * highest 1 bit: 0
-     * middle 10 bit: workerId
-     * lowest 53 bit: all 0
-     */
-    private long workerId;
-
-    /**
-     * timestamp and sequence mix in one Long
-     * highest 11 bit: not used
-     * middle  41 bit: timestamp
-     * lowest  12 bit: sequence
-     */
-    private AtomicLong timestampAndSequence;
-
-    /**
-     * mask that help to extract timestamp and sequence from a long
-     */
-    private final long timestampAndSequenceMask = ~(-1L << (timestampBits + sequenceBits));
-
-    /**
-     * instantiate an IdWorker using given workerId
-     * @param workerId if null, then will auto assign one
-     */
-    public SeataSnowflake(Long workerId) {
-        initTimestampAndSequence();
-        initWorkerId(workerId);
-    }
-
-    /**
-     * init first timestamp and sequence immediately
-     */
-    private void initTimestampAndSequence() {
-        long timestamp = getNewestTimestamp();
-        long timestampWithSequence = timestamp << sequenceBits;
-        this.timestampAndSequence = new AtomicLong(timestampWithSequence);
-    }
-
-    /**
-     * init workerId
-     * @param workerId if null, then auto generate one
-     */
-    private void initWorkerId(Long workerId) {
-        if (workerId == null) {
-            workerId = generateWorkerId();
-        }
-        if (workerId > maxWorkerId || workerId < 0) {
-            String message = String.format("worker Id can't be greater than %d or less than 0", maxWorkerId);
-            throw new IllegalArgumentException(message);
-        }
-        this.workerId = workerId << (timestampBits + sequenceBits);
-    }
-
-    /**
-     * get next UUID(base on snowflake algorithm), which look like:
-     * highest 1 bit: always 0
-     * next   10 bit: workerId
-     * next   41 bit: timestamp
-     * lowest 12 bit: sequence
-     * @return UUID
-     */
-    public long nextId() {
-        waitIfNecessary();
-        long next = timestampAndSequence.incrementAndGet();
-        long timestampWithSequence = next & timestampAndSequenceMask;
-        return workerId | timestampWithSequence;
-    }
-
-    /**
-     * block current thread if the QPS of acquiring UUID is too high
-     * that current sequence space is exhausted
-     */
-    private void waitIfNecessary() {
-        long currentWithSequence = timestampAndSequence.get();
-        long current = currentWithSequence >>> sequenceBits;
-        long newest = getNewestTimestamp();
-        if (current >= newest) {
-            try {
-                Thread.sleep(5);
-            } catch (InterruptedException ignore) {
-                // don't care
-            }
-        }
-    }
-
-    /**
-     * get newest timestamp relative to twepoch
-     */
-    private long getNewestTimestamp() {
-        return System.currentTimeMillis() - twepoch;
-    }
-
-    /**
-     * auto generate workerId, try using mac first, if failed, then randomly generate one
-     * @return workerId
-     */
-    private long generateWorkerId() {
-        try {
-            return generateWorkerIdBaseOnMac();
-        } catch (Exception e) {
-            return generateRandomWorkerId();
-        }
-    }
-
-    /**
-     * use lowest 10 bit of available MAC as workerId
-     * @return workerId
-     * @throws Exception when there is no available mac found
-     */
-    private long generateWorkerIdBaseOnMac() throws Exception {
-        Enumeration<NetworkInterface> all = NetworkInterface.getNetworkInterfaces();
-        while (all.hasMoreElements()) {
-            NetworkInterface networkInterface = all.nextElement();
-            boolean isLoopback = networkInterface.isLoopback();
-            boolean isVirtual = networkInterface.isVirtual();
-            byte[] mac = networkInterface.getHardwareAddress();
-            if (isLoopback || isVirtual || mac == null) {
-                continue;
-            }
-            return ((mac[4] & 0B11) << 8) | (mac[5] & 0xFF);
-        }
-        throw new RuntimeException("no available mac found");
-    }
-
-    /**
-     * randomly generate one as workerId
-     * @return workerId
-     */
-    private long generateRandomWorkerId() {
-        return new Random().nextInt(maxWorkerId + 1);
-    }
-}
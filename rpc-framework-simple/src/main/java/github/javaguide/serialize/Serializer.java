@@ -1,6 +1,8 @@
 package github.javaguide.serialize;
 
 import github.javaguide.extension.SPI;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 
 /**
  * 序列化接口，所有序列化类都要实现这个接口
@@ -18,6 +20,17 @@ public interface Serializer {
      */
     byte[] serialize(Object obj);
 
+    /**
+     * 序列化并直接写入 ByteBuf，省去中间的字节数组。默认实现退化为 {@link #serialize(Object)} 再拷贝，
+     * 支持流式输出的实现应覆盖该方法
+     *
+     * @param obj 要序列化的对象
+     * @param out 目标缓冲区，从其 writerIndex 开始写入
+     */
+    default void serialize(Object obj, ByteBuf out) {
+        out.writeBytes(serialize(obj));
+    }
+
     /**
      * 反序列化
      *
@@ -28,4 +41,18 @@ public interface Serializer {
      * @return 反序列化的对象
      */
     <T> T deserialize(byte[] bytes, Class<T> clazz);
+
+    /**
+     * 直接从 ByteBuf 中反序列化，读取其全部可读字节并推进 readerIndex。默认实现先拷贝为字节数组，
+     * 支持流式输入的实现应覆盖该方法
+     *
+     * @param in    序列化后的数据
+     * @param clazz 目标类
+     * @return 反序列化的对象
+     */
+    default <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        byte[] bytes = ByteBufUtil.getBytes(in);
+        in.skipBytes(bytes.length);
+        return deserialize(bytes, clazz);
+    }
 }
@@ -5,6 +5,9 @@ import com.caucho.hessian.io.HessianInput;
 import com.caucho.hessian.io.HessianOutput;
 import github.javaguide.exception.SerializeException;
 import github.javaguide.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -29,6 +32,17 @@ public class HessianSerializer implements Serializer {
 
     }
 
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        try {
+            HessianOutput hessianOutput = new HessianOutput(new ByteBufOutputStream(out));
+            hessianOutput.writeObject(obj);
+            hessianOutput.flush();
+        } catch (Exception e) {
+            throw new SerializeException("Serialization failed");
+        }
+    }
+
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clazz) {
 
@@ -43,4 +57,14 @@ public class HessianSerializer implements Serializer {
         }
 
     }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        try {
+            HessianInput hessianInput = new HessianInput(new ByteBufInputStream(in));
+            return clazz.cast(hessianInput.readObject());
+        } catch (Exception e) {
+            throw new SerializeException("Deserialization failed");
+        }
+    }
 }
@@ -6,6 +6,9 @@ import com.caucho.hessian.io.HessianInput;
 import com.caucho.hessian.io.HessianOutput;
 import github.javaguide.exception.SerializeException;
 import github.javaguide.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -26,6 +29,15 @@ public class JsonSerializer implements Serializer {
 
     }
 
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        try {
+            JSON.writeJSONString(new ByteBufOutputStream(out), obj);
+        } catch (Exception e) {
+            throw new SerializeException("Serialization failed");
+        }
+    }
+
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clazz) {
 
@@ -36,4 +48,13 @@ public class JsonSerializer implements Serializer {
         }
 
     }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        try {
+            return JSON.parseObject(new ByteBufInputStream(in), clazz);
+        } catch (Exception e) {
+            throw new SerializeException("Deserialization failed");
+        }
+    }
 }
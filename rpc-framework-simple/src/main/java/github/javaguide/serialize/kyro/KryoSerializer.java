@@ -4,13 +4,23 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import github.javaguide.exception.SerializeException;
+import github.javaguide.remoting.dto.RpcCompactRequest;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
 import github.javaguide.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import lombok.extern.slf4j.Slf4j;
+import org.objenesis.strategy.StdInstantiatorStrategy;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 
 /**
  * Kryo serialization class, Kryo serialization efficiency is very high, but only compatible with Java language
@@ -21,42 +31,113 @@ import java.io.ByteArrayOutputStream;
 @Slf4j
 public class KryoSerializer implements Serializer {
 
+    private static final int BUFFER_SIZE = 4096;
     /**
-     * Because Kryo is not thread safe. So, use ThreadLocal to store Kryo objects
+     * 线程复用的 Output 缓冲区超过该大小后不再保留，避免偶发的大消息长期占用内存
      */
-    private final ThreadLocal<Kryo> kryoThreadLocal = ThreadLocal.withInitial(() -> {
-        Kryo kryo = new Kryo();
-        kryo.register(RpcResponse.class);
-        kryo.register(RpcRequest.class);
-        return kryo;
-    });
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+    /**
+     * 预注册的类型及其固定 id，客户端与服务端必须一致，只能在末尾追加。
+     * 未注册的类型（如业务参数类型）仍可序列化，只是会写出完整类名
+     */
+    private static final Class<?>[] REGISTERED_CLASSES = {
+            RpcRequest.class, RpcResponse.class, Class[].class, Object[].class,
+            ArrayList.class, LinkedList.class, HashMap.class, LinkedHashMap.class, HashSet.class,
+            Date.class, BigDecimal.class, BigInteger.class, RpcCompactRequest.class
+    };
+    private static final int FIRST_REGISTRATION_ID = 100;
+
+    /**
+     * Because Kryo is not thread safe. So, use ThreadLocal to store Kryo objects.
+     * Kryo 实例及其读写缓冲区随线程长期复用，不再在每次调用后 remove
+     */
+    private static final ThreadLocal<KryoHolder> KRYO_HOLDER = ThreadLocal.withInitial(KryoHolder::new);
 
     @Override
     public byte[] serialize(Object obj) {
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             Output output = new Output(byteArrayOutputStream)) {
-            Kryo kryo = kryoThreadLocal.get();
+        KryoHolder holder = KRYO_HOLDER.get();
+        try {
+            Output output = holder.output();
             // Object->byte:将对象序列化为byte数组
-            kryo.writeObject(output, obj);
-            kryoThreadLocal.remove();
+            holder.kryo.writeObject(output, obj);
             return output.toBytes();
         } catch (Exception e) {
             throw new SerializeException("Serialization failed");
         }
     }
 
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        KryoHolder holder = KRYO_HOLDER.get();
+        try {
+            Output output = holder.output();
+            holder.kryo.writeObject(output, obj);
+            out.writeBytes(output.getBuffer(), 0, output.position());
+        } catch (Exception e) {
+            throw new SerializeException("Serialization failed");
+        }
+    }
+
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clazz) {
-        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
-             Input input = new Input(byteArrayInputStream)) {
-            Kryo kryo = kryoThreadLocal.get();
+        KryoHolder holder = KRYO_HOLDER.get();
+        try {
+            holder.input.setBuffer(bytes);
             // byte->Object:从byte数组中反序列化出对对象
-            Object o = kryo.readObject(input, clazz);
-            kryoThreadLocal.remove();
+            Object o = holder.kryo.readObject(holder.input, clazz);
+            return clazz.cast(o);
+        } catch (Exception e) {
+            throw new SerializeException("Deserialization failed");
+        } finally {
+            holder.input.setBuffer(holder.inputBuffer);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        KryoHolder holder = KRYO_HOLDER.get();
+        Input input = holder.input;
+        try {
+            if (in.hasArray()) {
+                // 堆内缓冲区直接在底层数组上读取
+                input.setBuffer(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+            } else {
+                input.setBuffer(holder.inputBuffer);
+                input.setInputStream(new ByteBufInputStream(in));
+            }
+            Object o = holder.kryo.readObject(input, clazz);
+            in.readerIndex(in.writerIndex());
             return clazz.cast(o);
         } catch (Exception e) {
             throw new SerializeException("Deserialization failed");
+        } finally {
+            input.setInputStream(null);
+            input.setBuffer(holder.inputBuffer);
+        }
+    }
+
+    private static Kryo newKryo() {
+        Kryo kryo = new Kryo();
+        // 没有无参构造器的类也能反序列化
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        for (int i = 0; i < REGISTERED_CLASSES.length; i++) {
+            kryo.register(REGISTERED_CLASSES[i], FIRST_REGISTRATION_ID + i);
         }
+        return kryo;
     }
 
+    private static final class KryoHolder {
+        private final Kryo kryo = newKryo();
+        private final byte[] inputBuffer = new byte[BUFFER_SIZE];
+        private final Input input = new Input(inputBuffer);
+        private Output output = new Output(BUFFER_SIZE, -1);
+
+        private Output output() {
+            if (output.getBuffer().length > MAX_POOLED_BUFFER_SIZE) {
+                output = new Output(BUFFER_SIZE, -1);
+            }
+            output.clear();
+            return output;
+        }
+    }
 }
@@ -1,11 +1,21 @@
 package github.javaguide.serialize.protostuff;
 
+import github.javaguide.exception.SerializeException;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
 import github.javaguide.serialize.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
 import io.protostuff.runtime.RuntimeSchema;
 
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * @author TangMinXuan
  * @createTime 2020年11月09日 20:13
@@ -13,28 +23,80 @@ import io.protostuff.runtime.RuntimeSchema;
 public class ProtostuffSerializer implements Serializer {
 
     /**
-     * Avoid re applying buffer space every time serialization
+     * Avoid re applying buffer space every time serialization.
+     * LinkedBuffer 不是线程安全的，多个 EventLoop 与业务线程池会并发序列化，因此每个线程持有自己的 buffer
      */
-    private static final LinkedBuffer BUFFER = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+    private static final ThreadLocal<LinkedBuffer> BUFFER = ThreadLocal.withInitial(
+            () -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+    private static final Schema<RpcRequest> RPC_REQUEST_SCHEMA = RuntimeSchema.getSchema(RpcRequest.class);
+    @SuppressWarnings("rawtypes")
+    private static final Schema<RpcResponse> RPC_RESPONSE_SCHEMA = RuntimeSchema.getSchema(RpcResponse.class);
+    private static final Map<Class<?>, Schema<?>> SCHEMA_CACHE = new ConcurrentHashMap<>();
+
+    static {
+        SCHEMA_CACHE.put(RpcRequest.class, RPC_REQUEST_SCHEMA);
+        SCHEMA_CACHE.put(RpcResponse.class, RPC_RESPONSE_SCHEMA);
+    }
 
     @Override
     public byte[] serialize(Object obj) {
-        Class<?> clazz = obj.getClass();
-        Schema schema = RuntimeSchema.getSchema(clazz);
-        byte[] bytes;
+        Schema schema = getSchema(obj.getClass());
+        LinkedBuffer buffer = BUFFER.get();
         try {
-            bytes = ProtostuffIOUtil.toByteArray(obj, schema, BUFFER);
+            return ProtostuffIOUtil.toByteArray(obj, schema, buffer);
         } finally {
-            BUFFER.clear();
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        Schema schema = getSchema(obj.getClass());
+        LinkedBuffer buffer = BUFFER.get();
+        try {
+            ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), obj, schema, buffer);
+        } catch (IOException e) {
+            throw new SerializeException("Serialization failed");
+        } finally {
+            buffer.clear();
         }
-        return bytes;
     }
 
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clazz) {
-        Schema<T> schema = RuntimeSchema.getSchema(clazz);
+        Schema<T> schema = getSchema(clazz);
         T obj = schema.newMessage();
         ProtostuffIOUtil.mergeFrom(bytes, obj, schema);
         return obj;
     }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> clazz) {
+        Schema<T> schema = getSchema(clazz);
+        T obj = schema.newMessage();
+        try {
+            if (in.hasArray()) {
+                // 堆内缓冲区直接在底层数组上解析
+                ProtostuffIOUtil.mergeFrom(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes(), obj, schema);
+                in.skipBytes(in.readableBytes());
+            } else {
+                ProtostuffIOUtil.mergeFrom(new ByteBufInputStream(in), obj, schema);
+            }
+        } catch (IOException e) {
+            throw new SerializeException("Deserialization failed");
+        }
+        return obj;
+    }
+
+    /**
+     * RpcRequest/RpcResponse 的 schema 预先生成，其余类型首次使用时缓存
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Schema<T> getSchema(Class<T> clazz) {
+        Schema<?> schema = SCHEMA_CACHE.get(clazz);
+        if (schema == null) {
+            schema = SCHEMA_CACHE.computeIfAbsent(clazz, RuntimeSchema::getSchema);
+        }
+        return (Schema<T>) schema;
+    }
 }
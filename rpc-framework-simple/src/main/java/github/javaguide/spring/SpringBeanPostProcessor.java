@@ -2,7 +2,9 @@ package github.javaguide.spring;
 
 import github.javaguide.annotation.RpcReference;
 import github.javaguide.annotation.RpcService;
+import github.javaguide.config.RpcConfig;
 import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.RpcRequestTransportEnum;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.factory.SingletonFactory;
@@ -10,6 +12,7 @@ import github.javaguide.provider.ServiceProvider;
 import github.javaguide.provider.impl.ZkServiceProviderImpl;
 import github.javaguide.proxy.RpcClientProxy;
 import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.utils.StringUtil;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
@@ -35,13 +38,14 @@ import java.lang.reflect.Field;
 public class SpringBeanPostProcessor implements BeanPostProcessor {
 
     private final ServiceProvider serviceProvider;
-    private final RpcRequestTransport rpcClient; //支持netty、socket
+    private final RpcRequestTransport rpcClient; //支持netty、socket、shm，通过rpc.client.transport配置
 
     public SpringBeanPostProcessor() {
         //服务提供者（zookeeper）
         this.serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
         //spi（Service Provider Interface）？
-        this.rpcClient = ExtensionLoader.getExtensionLoader(RpcRequestTransport.class).getExtension(RpcRequestTransportEnum.NETTY.getName());
+        this.rpcClient = ExtensionLoader.getExtensionLoader(RpcRequestTransport.class)
+                .getExtension(RpcConfig.getString(RpcConfigEnum.CLIENT_TRANSPORT, RpcRequestTransportEnum.NETTY.getName()));
     }
 
     //BeanPostProcessor是spring提供的扩展点：Bean的初始化之前执行
@@ -82,6 +86,11 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
                         .maxAttemptCnt(rpcReference.maxAttemptCnt())//指定最大重试次数
                         .faultClass(rpcReference.faultClass()) //容错策略
                         .timeoutStrategy(rpcReference.timeoutStrategy()) //超时策略
+                        .serialization(codecName(rpcReference.serialization(), RpcConfigEnum.SERIALIZATION, declaredField.getType())) //序列化方式
+                        .compress(codecName(rpcReference.compress(), RpcConfigEnum.COMPRESS, declaredField.getType())) //压缩方式
+                        .connections(connections(rpcReference.connections(), declaredField.getType())) //连接数
+                        .connectionSelect(RpcConfig.getServiceString(RpcConfigEnum.CLIENT_CONNECTION_SELECT,
+                                declaredField.getType().getCanonicalName(), null)) //连接选择方式
                         .build();
                 RpcClientProxy rpcClientProxy = new RpcClientProxy(rpcClient, rpcServiceConfig);
                 Object clientProxy = rpcClientProxy.getProxy(declaredField.getType());
@@ -98,4 +107,30 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
         }
         return bean;
     }
+
+    /**
+     * 注解中指定的优先，其次是 rpc.properties 中针对该接口的配置，都没有时返回 null，由客户端使用全局默认
+     */
+    private static String codecName(String annotationValue, RpcConfigEnum key, Class<?> serviceInterface) {
+        if (!StringUtil.isBlank(annotationValue)) {
+            return annotationValue;
+        }
+        return RpcConfig.getServiceString(key, serviceInterface.getCanonicalName(), null);
+    }
+
+    /**
+     * 注解中指定的优先，其次是 rpc.properties 中针对该接口的配置，都没有时返回 0，由客户端使用全局默认
+     */
+    private static int connections(int annotationValue, Class<?> serviceInterface) {
+        if (annotationValue > 0) {
+            return annotationValue;
+        }
+        String value = RpcConfig.getServiceString(RpcConfigEnum.CLIENT_CONNECTIONS, serviceInterface.getCanonicalName(), null);
+        try {
+            return value == null ? 0 : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.warn("invalid connections [{}] for [{}]", value, serviceInterface.getCanonicalName());
+            return 0;
+        }
+    }
 }
@@ -2,13 +2,16 @@ package github.javaguide.spring;
 
 import cn.hutool.core.util.StrUtil;
 import github.javaguide.annotation.RpcService;
+import github.javaguide.config.RpcConfig;
 import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.RpcRequestTransportEnum;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.provider.ServiceProvider;
 import github.javaguide.provider.impl.ZkServiceProviderImpl;
 import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.utils.StringUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.ConfigurableListableBeanFactory;
@@ -75,6 +78,14 @@ public class customScanner2 implements BeanFactoryPostProcessor {
                             .group(rpcService.group())
                             .version(rpcService.version())
                             .service(bean).build();
+                    //响应的序列化/压缩方式及执行方式：注解优先，其次是rpc.properties中针对该接口的配置
+                    String serviceName = rpcServiceConfig.getServiceName();
+                    rpcServiceConfig.setSerialization(StringUtil.isBlank(rpcService.serialization())
+                            ? RpcConfig.getServiceString(RpcConfigEnum.SERIALIZATION, serviceName, null) : rpcService.serialization());
+                    rpcServiceConfig.setCompress(StringUtil.isBlank(rpcService.compress())
+                            ? RpcConfig.getServiceString(RpcConfigEnum.COMPRESS, serviceName, null) : rpcService.compress());
+                    rpcServiceConfig.setDispatcher(StringUtil.isBlank(rpcService.dispatcher())
+                            ? RpcConfig.getServiceString(RpcConfigEnum.DISPATCHER, serviceName, null) : rpcService.dispatcher());
                     serviceProvider.publishService(rpcServiceConfig);
                 }
             } catch (InstantiationException | IllegalAccessException | InvocationTargetException |
@@ -0,0 +1,115 @@
+package github.javaguide.compress;
+
+import github.javaguide.compress.lz4.Lz4Compress;
+import github.javaguide.compress.zstd.ZstdCompress;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.serialize.kyro.KryoSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.function.ThrowingConsumer;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 4字节原始长度 + 压缩块格式的实现（lz4、zstd）共用的测试，每个用例对每种实现各执行一次
+ */
+class BlockCompressTest {
+
+    @TestFactory
+    Stream<DynamicTest> compressTest() {
+        return forEachCompress(compress -> {
+            byte[] rpcRequestBytes = rpcRequestBytes();
+            byte[] compressRpcRequestBytes = compress.compress(rpcRequestBytes);
+            byte[] decompressRpcRequestBytes = compress.decompress(compressRpcRequestBytes);
+            assertArrayEquals(rpcRequestBytes, decompressRpcRequestBytes);
+        });
+    }
+
+    @TestFactory
+    Stream<DynamicTest> forgedOriginalLengthIsRejected() {
+        return forEachCompress(compress -> {
+            // 几个字节的数据声称原始长度接近2GB，不能按它分配内存
+            byte[] forged = {0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1, 2, 3};
+            assertThrows(IllegalArgumentException.class, () -> compress.decompress(forged));
+            ByteBuf in = PooledByteBufAllocator.DEFAULT.directBuffer();
+            ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer();
+            try {
+                in.writeBytes(forged);
+                assertThrows(IllegalArgumentException.class, () -> compress.decompress(in, out));
+                assertTrue(out.capacity() <= RpcConstants.MAX_FRAME_LENGTH);
+            } finally {
+                in.release();
+                out.release();
+            }
+        });
+    }
+
+    @TestFactory
+    Stream<DynamicTest> originalLengthLargerThanDataIsRejected() {
+        return forEachCompress(compress -> {
+            byte[] rpcRequestBytes = rpcRequestBytes();
+            byte[] compressed = compress.compress(rpcRequestBytes);
+            // 头部的原始长度比实际数据多出一些，解压结果不能是补零后的数组
+            int lyingLength = rpcRequestBytes.length + 16;
+            compressed[0] = (byte) (lyingLength >>> 24);
+            compressed[1] = (byte) (lyingLength >>> 16);
+            compressed[2] = (byte) (lyingLength >>> 8);
+            compressed[3] = (byte) lyingLength;
+            assertThrows(IllegalArgumentException.class, () -> compress.decompress(compressed));
+        });
+    }
+
+    @TestFactory
+    Stream<DynamicTest> compressByteBufTest() {
+        return forEachCompress(compress -> {
+            byte[] rpcRequestBytes = rpcRequestBytes();
+            for (boolean direct : new boolean[]{true, false}) {
+                ByteBuf in = direct ? PooledByteBufAllocator.DEFAULT.directBuffer() : PooledByteBufAllocator.DEFAULT.heapBuffer();
+                ByteBuf compressed = PooledByteBufAllocator.DEFAULT.directBuffer();
+                ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer();
+                try {
+                    in.writeBytes(rpcRequestBytes);
+                    compress.compress(in, compressed);
+                    assertEquals(0, in.readableBytes());
+                    // ByteBuf 与 byte[] 两种接口的压缩格式一致
+                    byte[] compressedBytes = new byte[compressed.readableBytes()];
+                    compressed.getBytes(compressed.readerIndex(), compressedBytes);
+                    assertArrayEquals(rpcRequestBytes, compress.decompress(compressedBytes));
+                    compress.decompress(compressed, out);
+                    byte[] decompressed = new byte[out.readableBytes()];
+                    out.readBytes(decompressed);
+                    assertArrayEquals(rpcRequestBytes, decompressed);
+                } finally {
+                    in.release();
+                    compressed.release();
+                    out.release();
+                }
+            }
+        });
+    }
+
+    private static Stream<DynamicTest> forEachCompress(ThrowingConsumer<Compress> test) {
+        return DynamicTest.stream(Arrays.<Compress>asList(new Lz4Compress(), new ZstdCompress()).iterator(),
+                compress -> compress.getClass().getSimpleName(), test);
+    }
+
+    private static byte[] rpcRequestBytes() {
+        RpcRequest rpcRequest = RpcRequest.builder().methodName("hello")
+                .parameters(new Object[]{"sayhelooloo", "sayhelooloosayhelooloo"})
+                .interfaceName("github.javaguide.HelloService")
+                .paramTypes(new Class<?>[]{String.class, String.class})
+                .group("group1")
+                .version("version1")
+                .build();
+        return new KryoSerializer().serialize(rpcRequest);
+    }
+}
@@ -1,13 +1,23 @@
 package github.javaguide.compress.gzip;
 
 import github.javaguide.compress.Compress;
+import github.javaguide.remoting.constants.RpcConstants;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.serialize.kyro.KryoSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.junit.jupiter.api.Test;
 
-import java.util.UUID;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class GzipCompressTest {
     @Test
@@ -17,7 +27,6 @@ class GzipCompressTest {
                 .parameters(new Object[]{"sayhelooloo", "sayhelooloosayhelooloo"})
                 .interfaceName("github.javaguide.HelloService")
                 .paramTypes(new Class<?>[]{String.class, String.class})
-                .requestId(UUID.randomUUID().toString())
                 .group("group1")
                 .version("version1")
                 .build();
@@ -28,5 +37,85 @@ class GzipCompressTest {
         assertEquals(rpcRequestBytes.length, decompressRpcRequestBytes.length);
     }
 
+    @Test
+    void gzipWireCompatibleTest() throws IOException {
+        Compress gzipCompress = new GzipCompress();
+        byte[] bytes = largePayload();
+        // 与 JDK 的 GZIPInputStream/GZIPOutputStream 互通
+        try (GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(gzipCompress.compress(bytes)))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = gunzip.read(buffer)) > -1) {
+                out.write(buffer, 0, n);
+            }
+            assertArrayEquals(bytes, out.toByteArray());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        assertArrayEquals(bytes, gzipCompress.decompress(out.toByteArray()));
+    }
+
+    @Test
+    void gzipCompressByteBufTest() {
+        Compress gzipCompress = new GzipCompress();
+        byte[] bytes = largePayload();
+        ByteBuf in = PooledByteBufAllocator.DEFAULT.directBuffer();
+        ByteBuf compressed = PooledByteBufAllocator.DEFAULT.directBuffer();
+        ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            in.writeBytes(bytes);
+            gzipCompress.compress(in, compressed);
+            gzipCompress.decompress(compressed, out);
+            byte[] decompressed = new byte[out.readableBytes()];
+            out.readBytes(decompressed);
+            assertArrayEquals(bytes, decompressed);
+        } finally {
+            in.release();
+            compressed.release();
+            out.release();
+        }
+    }
+
+    @Test
+    void forgedIsizeIsOnlyAHint() {
+        Compress gzipCompress = new GzipCompress();
+        byte[] compressed = gzipCompress.compress(largePayload());
+        // 把 trailer 中的 ISIZE 改为 0x7FFFFFFF，不能按它分配2GB内存
+        compressed[compressed.length - 4] = (byte) 0xFF;
+        compressed[compressed.length - 3] = (byte) 0xFF;
+        compressed[compressed.length - 2] = (byte) 0xFF;
+        compressed[compressed.length - 1] = 0x7F;
+        assertThrows(RuntimeException.class, () -> gzipCompress.decompress(compressed));
+        ByteBuf in = PooledByteBufAllocator.DEFAULT.directBuffer();
+        ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            in.writeBytes(compressed);
+            assertThrows(RuntimeException.class, () -> gzipCompress.decompress(in, out));
+            // netty 扩容时会在预分配的长度上多留一些空间，但远小于伪造的 ISIZE
+            assertTrue(out.capacity() < 2 * RpcConstants.MAX_FRAME_LENGTH);
+        } finally {
+            in.release();
+            out.release();
+        }
+    }
+
+    @Test
+    void decompressedDataAboveMaxFrameLengthIsRejected() {
+        Compress gzipCompress = new GzipCompress();
+        // 全零数据压缩后只有几KB，解压后超过最大帧长度
+        byte[] compressed = gzipCompress.compress(new byte[RpcConstants.MAX_FRAME_LENGTH + 1]);
+        assertTrue(compressed.length < 64 * 1024);
+        assertThrows(RuntimeException.class, () -> gzipCompress.decompress(compressed));
+    }
 
-}
\ No newline at end of file
+    private static byte[] largePayload() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("Hello description is ").append(i).append(';');
+        }
+        return sb.toString().getBytes();
+    }
+}
@@ -0,0 +1,61 @@
+package github.javaguide.dispatcher;
+
+import github.javaguide.dispatcher.impl.IsolatedDispatcher;
+import github.javaguide.enums.RpcConfigEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsolatedDispatcherTest {
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty(RpcConfigEnum.DISPATCHER_THREADS.getPropertyValue(), "1");
+        System.setProperty(RpcConfigEnum.DISPATCHER_QUEUE_CAPACITY.getPropertyValue(), "1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(RpcConfigEnum.DISPATCHER_THREADS.getPropertyValue());
+        System.clearProperty(RpcConfigEnum.DISPATCHER_QUEUE_CAPACITY.getPropertyValue());
+    }
+
+    @Test
+    void slowServiceDoesNotBlockOtherServices() throws InterruptedException {
+        Dispatcher dispatcher = new IsolatedDispatcher();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        dispatcher.dispatch("slowService", () -> {
+            started.countDown();
+            await(blocked);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch("slowService", () -> {
+        });
+        assertEquals(1, dispatcher.queueDepth());
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.dispatch("slowService", () -> {
+        }));
+        assertEquals(1, dispatcher.rejectedCount());
+
+        CountDownLatch fastDone = new CountDownLatch(1);
+        dispatcher.dispatch("fastService", fastDone::countDown);
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        blocked.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package github.javaguide.dispatcher;
+
+import github.javaguide.dispatcher.impl.VirtualThreadDispatcher;
+import github.javaguide.utils.concurrent.VirtualThreads;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualThreadDispatcherTest {
+
+    @Test
+    void runsOnVirtualThreadWhenAvailable() throws Exception {
+        Dispatcher dispatcher = new VirtualThreadDispatcher();
+        CompletableFuture<String> threadName = new CompletableFuture<>();
+        dispatcher.dispatch("service", () -> threadName.complete(Thread.currentThread().getName()));
+        String name = threadName.get(5, TimeUnit.SECONDS);
+        if (VirtualThreads.isAvailable()) {
+            assertTrue(name.startsWith("rpc-dispatcher-virtual-"), name);
+        } else {
+            // JDK 21以下退回到shared线程池
+            assertTrue(name.startsWith("rpc-dispatcher-shared-"), name);
+        }
+        assertEquals(0, dispatcher.rejectedCount());
+    }
+
+    @Test
+    void unavailableBeforeJava21() {
+        boolean java21 = !System.getProperty("java.specification.version").startsWith("1.")
+                && Integer.parseInt(System.getProperty("java.specification.version")) >= 21;
+        if (!java21) {
+            assertFalse(VirtualThreads.isAvailable());
+        } else {
+            assertTrue(VirtualThreads.isAvailable());
+        }
+    }
+}
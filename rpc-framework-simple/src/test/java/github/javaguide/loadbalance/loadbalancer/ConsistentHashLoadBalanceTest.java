@@ -11,7 +11,6 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
 
@@ -29,7 +28,6 @@ class ConsistentHashLoadBalanceTest {
         RpcRequest rpcRequest = RpcRequest.builder()
                 .parameters(demoRpcService.getClass().getTypeParameters())
                 .interfaceName(rpcServiceConfig.getServiceName())
-                .requestId(UUID.randomUUID().toString())
                 .group(rpcServiceConfig.getGroup())
                 .version(rpcServiceConfig.getVersion())
                 .build();
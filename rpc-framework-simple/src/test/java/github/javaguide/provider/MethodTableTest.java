@@ -0,0 +1,50 @@
+package github.javaguide.provider;
+
+import github.javaguide.DemoRpcService;
+import github.javaguide.DemoRpcServiceImpl;
+import github.javaguide.remoting.dto.RpcCompactRequest;
+import github.javaguide.remoting.dto.RpcRequest;
+import org.junit.jupiter.api.Test;
+
+import java.lang.invoke.MethodHandle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MethodTableTest {
+
+    @Test
+    void compactRequestResolvesToFullRequest() {
+        MethodTable methodTable = new MethodTable();
+        methodTable.register(DemoRpcService.class, new DemoRpcServiceImpl(), "test1", "version1");
+        methodTable.register(DemoRpcService.class, new DemoRpcServiceImpl(), "test1", "version1");
+        assertEquals(1, methodTable.getMethodIds().size());
+
+        RpcRequest rpcRequest = RpcRequest.builder()
+                .interfaceName(DemoRpcService.class.getCanonicalName())
+                .methodName("hello")
+                .paramTypes(new Class<?>[0])
+                .group("test1")
+                .version("version1").build();
+        Integer methodId = methodTable.getMethodIds().get(rpcRequest.getMethodKey());
+        assertNotNull(methodId);
+
+        RpcRequest resolved = methodTable.toRpcRequest(new RpcCompactRequest(methodId, new Object[0]));
+        assertEquals(rpcRequest.getRpcServiceName(), resolved.getRpcServiceName());
+        assertEquals(rpcRequest.getMethodKey(), resolved.getMethodKey());
+        assertNull(methodTable.toRpcRequest(new RpcCompactRequest(methodId + 1, new Object[0])));
+        assertEquals(methodId.intValue(), methodTable.methodId(resolved));
+    }
+
+    @Test
+    void invokerIsBoundToService() throws Throwable {
+        MethodTable methodTable = new MethodTable();
+        DemoRpcService service = new DemoRpcServiceImpl();
+        methodTable.register(DemoRpcService.class, service, "test1", "version1");
+        MethodHandle invoker = methodTable.invoker(0);
+        assertNotNull(invoker);
+        assertEquals(service.hello(), (Object) invoker.invokeExact(new Object[0]));
+        assertNull(methodTable.invoker(1));
+    }
+}
@@ -0,0 +1,69 @@
+package github.javaguide.proxy;
+
+import github.javaguide.DemoRpcService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RpcStubGeneratorTest {
+
+    public interface Calculator {
+        long add(int a, long b);
+
+        void ping(double d, boolean flag);
+
+        String[] names(String prefix);
+    }
+
+    @Test
+    void stubPacksArgumentsAndUnboxesResult() {
+        RecordingProxy proxy = new RecordingProxy();
+        Calculator calculator = RpcStubGenerator.newStub(Calculator.class, proxy);
+
+        proxy.result = 3L;
+        assertEquals(3L, calculator.add(1, 2L));
+        assertEquals("add", proxy.methodInfo.getMethodName());
+        assertEquals(Calculator.class.getName(), proxy.methodInfo.getInterfaceName());
+        assertArrayEquals(new Object[]{1, 2L}, proxy.args);
+
+        proxy.result = null;
+        calculator.ping(1.5d, true);
+        assertArrayEquals(new Object[]{1.5d, true}, proxy.args);
+
+        proxy.result = new String[]{"a", "b"};
+        assertArrayEquals(new String[]{"a", "b"}, calculator.names("p"));
+        assertEquals(3, proxy.calls.size());
+    }
+
+    @Test
+    void stubClassIsGeneratedOncePerInterface() {
+        DemoRpcService first = RpcStubGenerator.newStub(DemoRpcService.class, new RecordingProxy());
+        DemoRpcService second = RpcStubGenerator.newStub(DemoRpcService.class, new RecordingProxy());
+        assertEquals(first.getClass(), second.getClass());
+        assertTrue(RpcStubGenerator.isSupported(DemoRpcService.class));
+    }
+
+    private static class RecordingProxy extends RpcClientProxy {
+        private final List<String> calls = new ArrayList<>();
+        private RpcMethodInfo methodInfo;
+        private Object[] args;
+        private Object result;
+
+        RecordingProxy() {
+            super(null);
+        }
+
+        @Override
+        public Object invoke(RpcMethodInfo methodInfo, Object[] args) {
+            this.methodInfo = methodInfo;
+            this.args = args;
+            calls.add(methodInfo.getMethodName());
+            return result;
+        }
+    }
+}
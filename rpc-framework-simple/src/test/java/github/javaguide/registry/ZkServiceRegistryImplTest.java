@@ -5,13 +5,15 @@ import github.javaguide.DemoRpcServiceImpl;
 import github.javaguide.config.RpcServiceConfig;
 import github.javaguide.registry.zk.ZkServiceDiscoveryImpl;
 import github.javaguide.registry.zk.ZkServiceRegistryImpl;
+import github.javaguide.registry.zk.util.CuratorUtils;
 import github.javaguide.remoting.dto.RpcRequest;
+import io.netty.channel.unix.DomainSocketAddress;
 import org.junit.jupiter.api.Test;
 
 import java.net.InetSocketAddress;
-import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 
 /**
@@ -33,11 +35,41 @@ class ZkServiceRegistryImplTest {
 //                .parameters(args)
                 .interfaceName(rpcServiceConfig.getServiceName())
 //                .paramTypes(method.getParameterTypes())
-                .requestId(UUID.randomUUID().toString())
                 .group(rpcServiceConfig.getGroup())
                 .version(rpcServiceConfig.getVersion())
                 .build();
         InetSocketAddress acquiredInetSocketAddress = zkServiceDiscovery.lookupService(rpcRequest);
         assertEquals(givenInetSocketAddress.toString(), acquiredInetSocketAddress.toString());
     }
+
+    @Test
+    void should_clear_domain_socket_path_when_registered_without_it() {
+        ServiceRegistry zkServiceRegistry = new ZkServiceRegistryImpl();
+        InetSocketAddress givenInetSocketAddress = new InetSocketAddress("127.0.0.1", 9334);
+        String rpcServiceName = RpcServiceConfig.builder()
+                .group("test3").version("version3").service(new DemoRpcServiceImpl()).build().getRpcServiceName();
+        zkServiceRegistry.registerService(rpcServiceName, givenInetSocketAddress, "/tmp/rpc-test.sock");
+        assertEquals(CuratorUtils.DOMAIN_SOCKET_PREFIX + "/tmp/rpc-test.sock",
+                CuratorUtils.getNodeData(CuratorUtils.getZkClient(), rpcServiceName, "127.0.0.1:9334"));
+        zkServiceRegistry.registerService(rpcServiceName, givenInetSocketAddress, null);
+        assertNull(CuratorUtils.getNodeData(CuratorUtils.getZkClient(), rpcServiceName, "127.0.0.1:9334"));
+    }
+
+    @Test
+    void should_fall_back_to_tcp_address_when_domain_socket_is_unavailable() {
+        ServiceRegistry zkServiceRegistry = new ZkServiceRegistryImpl();
+        InetSocketAddress givenInetSocketAddress = new InetSocketAddress("127.0.0.1", 9335);
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
+                .group("test4").version("version4").service(new DemoRpcServiceImpl()).build();
+        zkServiceRegistry.registerService(rpcServiceConfig.getRpcServiceName(), givenInetSocketAddress, "/tmp/rpc-stale.sock");
+        ServiceDiscovery zkServiceDiscovery = new ZkServiceDiscoveryImpl();
+        RpcRequest rpcRequest = RpcRequest.builder()
+                .interfaceName(rpcServiceConfig.getServiceName())
+                .group(rpcServiceConfig.getGroup())
+                .version(rpcServiceConfig.getVersion())
+                .build();
+        zkServiceDiscovery.lookupServicePreferLocal(rpcRequest);
+        InetSocketAddress fallback = zkServiceDiscovery.domainSocketUnavailable(rpcRequest, new DomainSocketAddress("/tmp/rpc-stale.sock"));
+        assertEquals(givenInetSocketAddress.toString(), fallback.toString());
+    }
 }
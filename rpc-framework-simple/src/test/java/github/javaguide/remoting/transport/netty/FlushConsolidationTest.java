@@ -0,0 +1,35 @@
+package github.javaguide.remoting.transport.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FlushConsolidationTest {
+
+    @Test
+    void flushesInsideReadLoopAreMergedUntilReadComplete() {
+        AtomicInteger flushes = new AtomicInteger();
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void flush(ChannelHandlerContext ctx) {
+                flushes.incrementAndGet();
+                ctx.flush();
+            }
+        }, new FlushConsolidationHandler(256, true));
+        channel.pipeline().fireChannelRead("request");
+        for (int i = 0; i < 10; i++) {
+            channel.writeAndFlush("response" + i);
+        }
+        assertEquals(0, flushes.get());
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(1, flushes.get());
+        assertEquals(10, channel.outboundMessages().size());
+        channel.finishAndReleaseAll();
+    }
+}
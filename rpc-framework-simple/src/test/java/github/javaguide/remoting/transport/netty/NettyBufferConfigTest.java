@@ -0,0 +1,111 @@
+package github.javaguide.remoting.transport.netty;
+
+import github.javaguide.enums.BufferAllocatorEnum;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.WriteBufferWaterMark;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NettyBufferConfigTest {
+
+    @AfterEach
+    void tearDown() {
+        for (RpcConfigEnum key : RpcConfigEnum.values()) {
+            if (key.getPropertyValue().startsWith("rpc.buffer.") || key.getPropertyValue().startsWith("rpc.socket.")) {
+                System.clearProperty(key.getPropertyValue());
+            }
+        }
+    }
+
+    @Test
+    void defaultsToPooledDirectAllocator() {
+        NettyBufferConfig config = NettyBufferConfig.fromRpcConfig();
+        assertEquals(BufferAllocatorEnum.POOLED, config.getAllocatorType());
+        assertTrue(config.getAllocator() instanceof PooledByteBufAllocator);
+        assertTrue(config.isPreferDirect());
+        assertEquals(NettyBufferConfig.DEFAULT_RECV_BUFFER_MAX, config.getRecvBufferMax());
+        assertEquals(0, config.getSendBufferSize());
+        assertEquals(0, config.getReceiveBufferSize());
+    }
+
+    @Test
+    void configureClientBootstrap() {
+        set(RpcConfigEnum.SOCKET_SNDBUF, "262144");
+        NettyBufferConfig config = NettyBufferConfig.fromRpcConfig();
+        Map<ChannelOption<?>, Object> options = config(config, new Bootstrap());
+        assertSame(config.getAllocator(), options.get(ChannelOption.ALLOCATOR));
+        assertTrue(options.get(ChannelOption.RCVBUF_ALLOCATOR) instanceof AdaptiveRecvByteBufAllocator);
+        WriteBufferWaterMark waterMark = (WriteBufferWaterMark) options.get(ChannelOption.WRITE_BUFFER_WATER_MARK);
+        assertEquals(NettyBufferConfig.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK, waterMark.low());
+        assertEquals(NettyBufferConfig.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK, waterMark.high());
+        assertEquals(262144, options.get(ChannelOption.SO_SNDBUF));
+        assertFalse(options.containsKey(ChannelOption.SO_RCVBUF));
+    }
+
+    @Test
+    void receiveBufferIsSetOnListeningSocket() {
+        set(RpcConfigEnum.SOCKET_RCVBUF, "1048576");
+        ServerBootstrap serverBootstrap = new ServerBootstrap();
+        NettyBufferConfig.fromRpcConfig().configure(serverBootstrap);
+        assertEquals(1048576, serverBootstrap.config().options().get(ChannelOption.SO_RCVBUF));
+        assertFalse(serverBootstrap.config().childOptions().containsKey(ChannelOption.SO_RCVBUF));
+        assertTrue(serverBootstrap.config().childOptions().containsKey(ChannelOption.WRITE_BUFFER_WATER_MARK));
+    }
+
+    @Test
+    void unpooledHeapAllocator() {
+        set(RpcConfigEnum.BUFFER_ALLOCATOR, "unpooled");
+        set(RpcConfigEnum.BUFFER_PREFER_DIRECT, "false");
+        NettyBufferConfig config = NettyBufferConfig.fromRpcConfig();
+        assertTrue(config.getAllocator() instanceof UnpooledByteBufAllocator);
+        ByteBuf buffer = config.getAllocator().buffer();
+        try {
+            assertFalse(buffer.isDirect());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    void invalidValuesFallBackToDefaults() {
+        set(RpcConfigEnum.WRITE_BUFFER_LOW_WATER_MARK, "8192");
+        set(RpcConfigEnum.WRITE_BUFFER_HIGH_WATER_MARK, "4096");
+        set(RpcConfigEnum.RECV_BUFFER_INITIAL, "32");
+        set(RpcConfigEnum.SOCKET_SNDBUF, "-1");
+        NettyBufferConfig config = NettyBufferConfig.fromRpcConfig();
+        assertEquals(NettyBufferConfig.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK, config.getWriteBufferLowWaterMark());
+        assertEquals(NettyBufferConfig.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK, config.getWriteBufferHighWaterMark());
+        assertEquals(NettyBufferConfig.DEFAULT_RECV_BUFFER_INITIAL, config.getRecvBufferInitial());
+        assertEquals(0, config.getSendBufferSize());
+    }
+
+    @Test
+    void receiveBufferIsCappedByMaxFrameLength() {
+        set(RpcConfigEnum.RECV_BUFFER_MAX, String.valueOf(64 * 1024 * 1024));
+        assertEquals(RpcConstants.MAX_FRAME_LENGTH, NettyBufferConfig.fromRpcConfig().getRecvBufferMax());
+    }
+
+    private static Map<ChannelOption<?>, Object> config(NettyBufferConfig config, Bootstrap bootstrap) {
+        config.configure(bootstrap);
+        return bootstrap.config().options();
+    }
+
+    private static void set(RpcConfigEnum key, String value) {
+        System.setProperty(key.getPropertyValue(), value);
+    }
+}
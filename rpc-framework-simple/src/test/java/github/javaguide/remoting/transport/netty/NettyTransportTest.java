@@ -0,0 +1,82 @@
+package github.javaguide.remoting.transport.netty;
+
+import github.javaguide.enums.TransportTypeEnum;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class NettyTransportTest {
+
+    @Test
+    void unknownTransportFallsBackToNio() {
+        assertEquals(TransportTypeEnum.NIO, TransportTypeEnum.of(null));
+        assertEquals(TransportTypeEnum.NIO, TransportTypeEnum.of("kqueue"));
+        assertEquals(TransportTypeEnum.IO_URING, TransportTypeEnum.of("IO_URING"));
+    }
+
+    @Test
+    void nioIsTheDefaultTransport() {
+        assertEquals(TransportTypeEnum.NIO, NettyTransport.type());
+        assertEquals(NioSocketChannel.class, NettyTransport.socketChannelClass());
+        assertEquals(NioServerSocketChannel.class, NettyTransport.serverSocketChannelClass());
+        assertFalse(NettyTransport.supportsReusePort());
+        EventLoopGroup group = NettyTransport.newEventLoopGroup(1, "transport-test");
+        try {
+            assertTrue(group instanceof NioEventLoopGroup);
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    void domainSocketConnects() throws Exception {
+        assumeTrue(NettyTransport.supportsDomainSocket());
+        Path path = Files.createTempDirectory("rpc-uds").resolve("server.sock");
+        EventLoopGroup group = NettyTransport.newDomainSocketEventLoopGroup(1, "uds-test");
+        try {
+            CompletableFuture<Object> received = new CompletableFuture<>();
+            Channel server = new ServerBootstrap().group(group)
+                    .channel(NettyTransport.serverDomainSocketChannelClass())
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            received.complete(((ByteBuf) msg).toString(StandardCharsets.UTF_8));
+                            ((ByteBuf) msg).release();
+                        }
+                    })
+                    .bind(new DomainSocketAddress(path.toString())).sync().channel();
+            Channel client = new Bootstrap().group(group)
+                    .channel(NettyTransport.domainSocketChannelClass())
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(new DomainSocketAddress(path.toString())).sync().channel();
+            client.writeAndFlush(Unpooled.copiedBuffer("ping", StandardCharsets.UTF_8)).sync();
+            assertEquals("ping", received.get(1, TimeUnit.SECONDS));
+            client.close().sync();
+            server.close().sync();
+        } finally {
+            group.shutdownGracefully();
+            Files.deleteIfExists(path);
+        }
+    }
+}
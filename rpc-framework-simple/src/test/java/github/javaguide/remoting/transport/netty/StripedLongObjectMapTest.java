@@ -0,0 +1,34 @@
+package github.javaguide.remoting.transport.netty;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedLongObjectMapTest {
+
+    @Test
+    void putGetRemove() {
+        StripedLongObjectMap<String> map = new StripedLongObjectMap<>(5);
+        for (long i = 0; i < 1000; i++) {
+            map.put(i, "v" + i);
+        }
+        assertEquals(1000, map.size());
+        assertEquals("v42", map.get(42L));
+        assertEquals("v42", map.remove(42L));
+        assertNull(map.get(42L));
+        assertEquals(999, map.size());
+    }
+
+    @Test
+    void conditionalRemoveOnlyMatchesSameValue() {
+        StripedLongObjectMap<Object> map = new StripedLongObjectMap<>();
+        Object value = new Object();
+        map.put(Long.MAX_VALUE, value);
+        assertFalse(map.remove(Long.MAX_VALUE, new Object()));
+        assertTrue(map.remove(Long.MAX_VALUE, value));
+        assertEquals(0, map.size());
+    }
+}
@@ -0,0 +1,118 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.enums.ConnectionSelectEnum;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChannelPoolTest {
+    private static final ChannelInitializer<Channel> NO_OP = new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(Channel ch) {
+        }
+    };
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 9998);
+
+    private final AtomicInteger connects = new AtomicInteger();
+    private EventLoopGroup group;
+    private Channel server;
+    private Bootstrap bootstrap;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        group = new DefaultEventLoopGroup(2);
+        LocalAddress localAddress = new LocalAddress("channel-pool-test-" + UUID.randomUUID());
+        server = new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                .childHandler(NO_OP)
+                .bind(localAddress).sync().channel();
+        bootstrap = new Bootstrap().group(group).channel(LocalChannel.class)
+                .handler(NO_OP)
+                .remoteAddress(localAddress);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.close().sync();
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    private ChannelFuture connect(SocketAddress address) {
+        connects.incrementAndGet();
+        return bootstrap.connect();
+    }
+
+    @Test
+    void concurrentAcquiresShareOneConnect() throws Exception {
+        ChannelPool channelPool = new ChannelPool(ADDRESS, this::connect);
+        CompletableFuture<Channel> first = channelPool.acquire(1, ConnectionSelectEnum.ROUND_ROBIN);
+        CompletableFuture<Channel> second = channelPool.acquire(1, ConnectionSelectEnum.ROUND_ROBIN);
+        assertSame(first.get(1, TimeUnit.SECONDS), second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, connects.get());
+        channelPool.close();
+    }
+
+    @Test
+    void roundRobinUsesEveryConnection() throws Exception {
+        ChannelPool channelPool = new ChannelPool(ADDRESS, this::connect);
+        Set<Channel> channels = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            channels.add(channelPool.acquire(4, ConnectionSelectEnum.ROUND_ROBIN).get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(4, channels.size());
+        assertEquals(4, connects.get());
+        channelPool.close();
+    }
+
+    @Test
+    void leastPendingAvoidsBusyConnection() throws Exception {
+        ChannelPool channelPool = new ChannelPool(ADDRESS, this::connect);
+        Channel busy = channelPool.acquire(2, ConnectionSelectEnum.ROUND_ROBIN).get(1, TimeUnit.SECONDS);
+        Channel idle = channelPool.acquire(2, ConnectionSelectEnum.ROUND_ROBIN).get(1, TimeUnit.SECONDS);
+        CompletableFuture<Object> inFlight = new CompletableFuture<>();
+        ChannelPool.pending(busy, inFlight);
+        assertSame(idle, channelPool.acquire(2, ConnectionSelectEnum.LEAST_PENDING).get(1, TimeUnit.SECONDS));
+        inFlight.complete(null);
+        assertEquals(0, ChannelPool.pendingCount(busy));
+        channelPool.close();
+    }
+
+    @Test
+    void reconnectsInBackgroundAfterClose() throws Exception {
+        ChannelPool channelPool = new ChannelPool(ADDRESS, this::connect);
+        Channel channel = channelPool.acquire(1, ConnectionSelectEnum.ROUND_ROBIN).get(1, TimeUnit.SECONDS);
+        channel.close().sync();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (connects.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, connects.get());
+        Channel reconnected = channelPool.acquire(1, ConnectionSelectEnum.ROUND_ROBIN).get(1, TimeUnit.SECONDS);
+        assertNotSame(channel, reconnected);
+        assertTrue(reconnected.isActive());
+        channelPool.close();
+    }
+}
@@ -0,0 +1,39 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.dto.RpcResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientUnprocessedRequestsTest {
+    private final ClientUnprocessedRequests clientUnprocessedRequests = new ClientUnprocessedRequests();
+
+    @Test
+    void timeoutFailsFutureAndPurgesEntry() {
+        long requestId = clientUnprocessedRequests.nextRequestId();
+        CompletableFuture<RpcResponse<Object>> future = new CompletableFuture<>();
+        int inFlight = clientUnprocessedRequests.inFlightCount();
+        clientUnprocessedRequests.put(requestId, future, 50);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RpcException);
+        assertEquals(inFlight, clientUnprocessedRequests.inFlightCount());
+    }
+
+    @Test
+    void responseBeforeDeadlineCompletesFuture() throws Exception {
+        long requestId = clientUnprocessedRequests.nextRequestId();
+        CompletableFuture<RpcResponse<Object>> future = new CompletableFuture<>();
+        clientUnprocessedRequests.put(requestId, future, 5000);
+        RpcResponse<Object> rpcResponse = RpcResponse.success("ok");
+        clientUnprocessedRequests.complete(requestId, rpcResponse);
+        assertSame(rpcResponse, future.get(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,95 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.enums.BackpressureEnum;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundQueueTest {
+
+    @Test
+    void writesDirectlyWhileWritable() {
+        EmbeddedChannel channel = newChannel();
+        OutboundQueue queue = new OutboundQueue(channel, 2, BackpressureEnum.REJECT);
+        assertTrue(queue.write("request", ChannelFutureListener.CLOSE_ON_FAILURE, 1000));
+        assertEquals(0, queue.size());
+        assertEquals("request", channel.readOutbound());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void queuesWhileUnwritableAndDrainsInOrder() {
+        EmbeddedChannel channel = newChannel();
+        makeUnwritable(channel);
+        OutboundQueue queue = new OutboundQueue(channel, 2, BackpressureEnum.REJECT);
+        assertTrue(queue.write("request1", ChannelFutureListener.CLOSE_ON_FAILURE, 1000));
+        assertTrue(queue.write("request2", ChannelFutureListener.CLOSE_ON_FAILURE, 1000));
+        assertFalse(queue.write("request3", ChannelFutureListener.CLOSE_ON_FAILURE, 1000));
+        channel.runPendingTasks();
+        assertEquals(2, queue.size());
+
+        // 对端读走数据后恢复可写
+        channel.flush();
+        assertTrue(channel.isWritable());
+        queue.drain();
+        assertEquals(0, queue.size());
+        ((ByteBuf) channel.readOutbound()).release();
+        assertEquals("request1", channel.readOutbound());
+        assertEquals("request2", channel.readOutbound());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void blockOnEventLoopRejectsInsteadOfParking() {
+        EmbeddedChannel channel = newChannel();
+        makeUnwritable(channel);
+        OutboundQueue queue = new OutboundQueue(channel, 1, BackpressureEnum.BLOCK);
+        assertTrue(queue.write("request1", ChannelFutureListener.CLOSE_ON_FAILURE, 60_000));
+        long start = System.nanoTime();
+        assertFalse(queue.write("request2", ChannelFutureListener.CLOSE_ON_FAILURE, 60_000));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void queuedRequestsFailWhenChannelCloses() {
+        EmbeddedChannel channel = newChannel();
+        makeUnwritable(channel);
+        OutboundQueue queue = new OutboundQueue(channel, 2, BackpressureEnum.REJECT);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        ChannelFutureListener listener = future -> failures.add(future.cause());
+        queue.write("request1", listener, 1000);
+        queue.write("request2", listener, 1000);
+        channel.close();
+        queue.drain();
+        assertEquals(0, queue.size());
+        assertEquals(2, failures.size());
+        assertTrue(failures.get(0) instanceof ClosedChannelException);
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel newChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1024, 2048));
+        return channel;
+    }
+
+    /**
+     * 写入但不flush，待写出字节数超过高水位
+     */
+    private static void makeUnwritable(EmbeddedChannel channel) {
+        channel.write(Unpooled.wrappedBuffer(new byte[4096]));
+        assertFalse(channel.isWritable());
+    }
+}
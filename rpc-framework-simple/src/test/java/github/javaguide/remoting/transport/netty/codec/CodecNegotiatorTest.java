@@ -0,0 +1,58 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.dto.RpcHandshake;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodecNegotiatorTest {
+
+    @Test
+    void localCodecsContainDefaults() {
+        RpcHandshake local = CodecNegotiator.localCodecs();
+        assertTrue(local.getSerializations().contains(SerializationTypeEnum.HESSIAN.getName()));
+        assertTrue(local.getCompressions().contains(CompressTypeEnum.NONE.getName()));
+    }
+
+    @Test
+    void useCommonCodecsUntilServerHandshakeArrives() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        // 服务端没有kryo和zstd，第一批请求在握手响应到达前发出
+        assertEquals(SerializationTypeEnum.HESSIAN.getCode(),
+                CodecNegotiator.negotiateSerialization(channel, SerializationTypeEnum.KYRO.getCode()));
+        assertEquals(CompressTypeEnum.NONE.getCode(),
+                CodecNegotiator.negotiateCompress(channel, CompressTypeEnum.ZSTD.getCode()));
+        CodecNegotiator.setPeerCodecs(channel, RpcHandshake.builder()
+                .serializations(Arrays.asList("hessian", "protostuff"))
+                .compressions(Arrays.asList("none", "gzip")).build());
+        assertEquals(SerializationTypeEnum.HESSIAN.getCode(),
+                CodecNegotiator.negotiateSerialization(channel, SerializationTypeEnum.KYRO.getCode()));
+        assertEquals(CompressTypeEnum.NONE.getCode(),
+                CodecNegotiator.negotiateCompress(channel, CompressTypeEnum.ZSTD.getCode()));
+        assertEquals(SerializationTypeEnum.PROTOSTUFF.getCode(),
+                CodecNegotiator.negotiateSerialization(channel, SerializationTypeEnum.PROTOSTUFF.getCode()));
+    }
+
+    @Test
+    void fallBackWhenPeerLacksCodec() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        CodecNegotiator.setPeerCodecs(channel, RpcHandshake.builder()
+                .serializations(Arrays.asList("hessian", "protostuff"))
+                .compressions(Collections.singletonList("gzip")).build());
+        assertEquals(SerializationTypeEnum.PROTOSTUFF.getCode(),
+                CodecNegotiator.negotiateSerialization(channel, SerializationTypeEnum.PROTOSTUFF.getCode()));
+        assertEquals(SerializationTypeEnum.HESSIAN.getCode(),
+                CodecNegotiator.negotiateSerialization(channel, SerializationTypeEnum.KYRO.getCode()));
+        assertEquals(CompressTypeEnum.GZIP.getCode(),
+                CodecNegotiator.negotiateCompress(channel, CompressTypeEnum.GZIP.getCode()));
+        assertEquals(CompressTypeEnum.NONE.getCode(),
+                CodecNegotiator.negotiateCompress(channel, CompressTypeEnum.LZ4.getCode()));
+    }
+}
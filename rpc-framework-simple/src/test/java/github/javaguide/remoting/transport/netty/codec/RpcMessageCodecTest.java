@@ -0,0 +1,142 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcCompactRequest;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.EncoderException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RpcMessageCodecTest {
+
+    @Test
+    void requestRoundTrip() {
+        for (SerializationTypeEnum serialization : new SerializationTypeEnum[]{
+                SerializationTypeEnum.KYRO, SerializationTypeEnum.PROTOSTUFF, SerializationTypeEnum.HESSIAN}) {
+            RpcRequest rpcRequest = RpcRequest.builder().methodName("hello")
+                    .parameters(new Object[]{"sayhelooloo", "sayhelooloosayhelooloo"})
+                    .interfaceName("github.javaguide.HelloService")
+                    .paramTypes(new Class<?>[]{String.class, String.class})
+                    .group("group1")
+                    .version("version1")
+                    .build();
+            RpcMessage decoded = roundTrip(RpcMessage.builder()
+                    .messageType(RpcConstants.REQUEST_TYPE)
+                    .codec(serialization.getCode())
+                    .compress(CompressTypeEnum.GZIP.getCode())
+                    .requestId(42L)
+                    .data(rpcRequest).build());
+            assertEquals(42L, decoded.getRequestId());
+            RpcRequest result = (RpcRequest) decoded.getData();
+            assertEquals(rpcRequest.getRpcServiceName(), result.getRpcServiceName());
+            assertEquals(rpcRequest.getMethodName(), result.getMethodName());
+            assertArrayEquals(rpcRequest.getParameters(), result.getParameters());
+        }
+    }
+
+    @Test
+    void compactRequestRoundTrip() {
+        for (SerializationTypeEnum serialization : new SerializationTypeEnum[]{
+                SerializationTypeEnum.KYRO, SerializationTypeEnum.PROTOSTUFF, SerializationTypeEnum.HESSIAN}) {
+            RpcMessage decoded = roundTrip(RpcMessage.builder()
+                    .messageType(RpcConstants.COMPACT_REQUEST_TYPE)
+                    .codec(serialization.getCode())
+                    .compress(CompressTypeEnum.GZIP.getCode())
+                    .requestId(43L)
+                    .data(new RpcCompactRequest(3, new Object[]{"sayhelooloo", 1})).build());
+            RpcCompactRequest result = (RpcCompactRequest) decoded.getData();
+            assertEquals(3, result.getMethodId());
+            assertArrayEquals(new Object[]{"sayhelooloo", 1}, result.getParameters());
+        }
+    }
+
+    @Test
+    void responseRoundTrip() {
+        RpcMessage decoded = roundTrip(RpcMessage.builder()
+                .messageType(RpcConstants.RESPONSE_TYPE)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .requestId(7L)
+                .data(RpcResponse.success("Hello description is 222")).build());
+        assertEquals(7L, decoded.getRequestId());
+        assertEquals("Hello description is 222", ((RpcResponse<?>) decoded.getData()).getData());
+    }
+
+    @Test
+    void compressOnlyAboveThreshold() {
+        char[] large = new char[RpcConstants.DEFAULT_COMPRESS_THRESHOLD * 4];
+        Arrays.fill(large, 'a');
+        assertEquals(CompressTypeEnum.NONE.getCode(), encodedCompressType("small"));
+        assertEquals(CompressTypeEnum.GZIP.getCode(), encodedCompressType(new String(large)));
+
+        RpcMessage decoded = roundTrip(gzipResponse(new String(large)));
+        assertEquals(new String(large), ((RpcResponse<?>) decoded.getData()).getData());
+    }
+
+    @Test
+    void failedEncodeFailsTheWriteWithoutPartialFrame() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new RpcMessageEncoder());
+        // hessian写出RpcResponse的部分字段后，遇到未实现Serializable的data失败
+        RpcMessage rpcMessage = RpcMessage.builder()
+                .messageType(RpcConstants.RESPONSE_TYPE)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.NONE.getCode())
+                .data(RpcResponse.success(new NotSerializable())).build();
+        ChannelFuture future = encoder.writeOneOutbound(rpcMessage);
+        encoder.flushOutbound();
+        assertFalse(future.isSuccess());
+        assertTrue(future.cause() instanceof EncoderException);
+        assertNull(encoder.readOutbound());
+
+        // 同一连接上之后的消息正常编码
+        RpcMessage decoded = roundTrip(gzipResponse("hello"));
+        assertEquals("hello", ((RpcResponse<?>) decoded.getData()).getData());
+        assertFalse(encoder.finishAndReleaseAll());
+    }
+
+    private static byte encodedCompressType(String data) {
+        EmbeddedChannel encoder = new EmbeddedChannel(new RpcMessageEncoder());
+        encoder.writeOutbound(gzipResponse(data));
+        ByteBuf frame = encoder.readOutbound();
+        try {
+            return frame.getByte(RpcConstants.COMPRESS_INDEX);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static RpcMessage gzipResponse(String data) {
+        return RpcMessage.builder()
+                .messageType(RpcConstants.RESPONSE_TYPE)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .data(RpcResponse.success(data)).build();
+    }
+
+    private static final class NotSerializable {
+        private final String name = "not serializable";
+    }
+
+    static RpcMessage roundTrip(RpcMessage rpcMessage) {
+        EmbeddedChannel encoder = new EmbeddedChannel(new RpcMessageEncoder());
+        encoder.writeOutbound(rpcMessage);
+        ByteBuf frame = encoder.readOutbound();
+        EmbeddedChannel decoder = new EmbeddedChannel(new RpcMessageDecoder());
+        decoder.writeInbound(frame);
+        return decoder.readInbound();
+    }
+}
@@ -0,0 +1,83 @@
+package github.javaguide.remoting.transport.netty.server;
+
+import github.javaguide.dispatcher.Dispatcher;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadThrottleTest {
+
+    @Test
+    void suspendsReadingUntilDispatcherQueueDrains() throws InterruptedException {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        FixedUsageDispatcher dispatcher = new FixedUsageDispatcher();
+        ReadThrottle readThrottle = new ReadThrottle(ctx, true);
+
+        dispatcher.usage = 0.9;
+        readThrottle.afterDispatch(dispatcher, "service");
+        assertTrue(channel.config().isAutoRead());
+
+        dispatcher.usage = 1;
+        readThrottle.afterDispatch(dispatcher, "service");
+        assertFalse(channel.config().isAutoRead());
+
+        // 降到一半以下才恢复
+        dispatcher.usage = 0.6;
+        runScheduledTasks(channel);
+        assertFalse(channel.config().isAutoRead());
+        dispatcher.usage = 0.5;
+        runScheduledTasks(channel);
+        assertTrue(channel.config().isAutoRead());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void suspendsReadingWhileUnwritable() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1024, 2048));
+        ReadThrottle readThrottle = new ReadThrottle(channel.pipeline().firstContext(), true);
+        channel.write(Unpooled.wrappedBuffer(new byte[4096]));
+        readThrottle.writabilityChanged();
+        assertFalse(channel.config().isAutoRead());
+        channel.flush();
+        readThrottle.writabilityChanged();
+        assertTrue(channel.config().isAutoRead());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void disabledThrottleKeepsReading() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        FixedUsageDispatcher dispatcher = new FixedUsageDispatcher();
+        dispatcher.usage = 1;
+        new ReadThrottle(channel.pipeline().firstContext(), false).afterDispatch(dispatcher, "service");
+        assertTrue(channel.config().isAutoRead());
+        channel.finishAndReleaseAll();
+    }
+
+    private static void runScheduledTasks(EmbeddedChannel channel) throws InterruptedException {
+        Thread.sleep(20);
+        channel.runScheduledPendingTasks();
+    }
+
+    private static class FixedUsageDispatcher implements Dispatcher {
+        private volatile double usage;
+
+        @Override
+        public void dispatch(String rpcServiceName, Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public double queueUsage(String rpcServiceName) {
+            return usage;
+        }
+    }
+}
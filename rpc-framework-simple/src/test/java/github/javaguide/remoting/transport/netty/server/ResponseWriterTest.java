@@ -0,0 +1,186 @@
+package github.javaguide.remoting.transport.netty.server;
+
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcResponse;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseWriterTest {
+    private static final byte CODEC = SerializationTypeEnum.KYRO.getCode();
+
+    @Test
+    void unorderedWritesInCompletionOrderWithOneFlush() throws Exception {
+        try (LocalConnection connection = new LocalConnection("response-writer-test")) {
+            ChannelHandlerContext ctx = connection.serverCtx;
+            ResponseWriter responseWriter = new ResponseWriter(ctx, false);
+            // 两个响应在同一个event loop任务中完成，只触发一次flush
+            ctx.channel().eventLoop().submit(() -> {
+                long first = responseWriter.nextSequence(1L, CODEC);
+                long second = responseWriter.nextSequence(2L, CODEC);
+                responseWriter.write(second, response(2L));
+                responseWriter.write(first, response(1L));
+            }).sync();
+            assertEquals(2L, connection.nextRequestId());
+            assertEquals(1L, connection.nextRequestId());
+            assertEquals(1, connection.flushes.get());
+        }
+    }
+
+    @Test
+    void unorderedWritesFromOtherThreadsAreFlushed() throws Exception {
+        try (LocalConnection connection = new LocalConnection("response-writer-other-thread-test")) {
+            ChannelHandlerContext ctx = connection.serverCtx;
+            ResponseWriter responseWriter = new ResponseWriter(ctx, false);
+            // 先占住event loop，让两次write与flush任务都排在队列中
+            CountDownLatch blocked = new CountDownLatch(1);
+            ctx.channel().eventLoop().execute(() -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            responseWriter.write(0, response(1L));
+            responseWriter.write(1, response(2L));
+            blocked.countDown();
+            assertEquals(1L, connection.nextRequestId());
+            assertEquals(2L, connection.nextRequestId());
+        }
+    }
+
+    @Test
+    void orderedWritesInArrivalOrder() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ChannelInboundHandlerAdapter handler = new ChannelInboundHandlerAdapter();
+        channel.pipeline().addLast(handler);
+        ResponseWriter responseWriter = new ResponseWriter(channel.pipeline().context(handler), true);
+        long first = responseWriter.nextSequence(1L, CODEC);
+        long second = responseWriter.nextSequence(2L, CODEC);
+        long third = responseWriter.nextSequence(3L, CODEC);
+        responseWriter.write(third, response(3L));
+        responseWriter.write(second, response(2L));
+        channel.runPendingTasks();
+        assertNull(channel.readOutbound());
+        responseWriter.write(first, response(1L));
+        channel.runPendingTasks();
+        assertEquals(1L, ((RpcMessage) channel.readOutbound()).getRequestId());
+        assertEquals(2L, ((RpcMessage) channel.readOutbound()).getRequestId());
+        assertEquals(3L, ((RpcMessage) channel.readOutbound()).getRequestId());
+    }
+
+    @Test
+    void orderedRepliesFailureForStuckRequest() throws InterruptedException {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ChannelInboundHandlerAdapter handler = new ChannelInboundHandlerAdapter();
+        channel.pipeline().addLast(handler);
+        ResponseWriter responseWriter = new ResponseWriter(channel.pipeline().context(handler), true, 50);
+        long first = responseWriter.nextSequence(1L, CODEC);
+        long second = responseWriter.nextSequence(2L, CODEC);
+        responseWriter.write(second, response(2L));
+        channel.runPendingTasks();
+        assertNull(channel.readOutbound());
+
+        // 第一个请求一直没有完成，超时后回复失败，后面的响应随之写出
+        Thread.sleep(100);
+        channel.runScheduledPendingTasks();
+        channel.runPendingTasks();
+        RpcMessage failure = channel.readOutbound();
+        assertEquals(1L, failure.getRequestId());
+        assertEquals(CODEC, failure.getCodec());
+        assertEquals(RpcResponseCodeEnum.FAIL.getCode(), ((RpcResponse<?>) failure.getData()).getCode().intValue());
+        assertEquals(2L, ((RpcMessage) channel.readOutbound()).getRequestId());
+
+        // 超时后才完成的响应被丢弃
+        responseWriter.write(first, response(1L));
+        channel.runPendingTasks();
+        assertNull(channel.readOutbound());
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * 通过local transport连接的一对channel，serverCtx为服务端handler的上下文
+     */
+    private static final class LocalConnection implements AutoCloseable {
+        private final DefaultEventLoopGroup group = new DefaultEventLoopGroup(1);
+        private final AtomicInteger flushes = new AtomicInteger();
+        private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+        private final List<Channel> channels = new CopyOnWriteArrayList<>();
+        private final ChannelHandlerContext serverCtx;
+
+        LocalConnection(String name) throws Exception {
+            CompletableFuture<ChannelHandlerContext> serverCtxFuture = new CompletableFuture<>();
+            LocalAddress address = new LocalAddress(name);
+            channels.add(new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInitializer<LocalChannel>() {
+                        @Override
+                        protected void initChannel(LocalChannel ch) {
+                            ch.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+                                @Override
+                                public void flush(ChannelHandlerContext ctx) {
+                                    flushes.incrementAndGet();
+                                    ctx.flush();
+                                }
+                            }, new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void handlerAdded(ChannelHandlerContext ctx) {
+                                    serverCtxFuture.complete(ctx);
+                                }
+                            });
+                        }
+                    }).bind(address).sync().channel());
+            channels.add(new Bootstrap().group(group).channel(LocalChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            received.add(msg);
+                        }
+                    }).connect(address).sync().channel());
+            serverCtx = serverCtxFuture.get(5, TimeUnit.SECONDS);
+        }
+
+        /**
+         * 客户端收到的下一个响应的requestId，1秒内没有收到（响应未flush）时为null
+         */
+        Long nextRequestId() throws InterruptedException {
+            RpcMessage rpcMessage = (RpcMessage) received.poll(1, TimeUnit.SECONDS);
+            return rpcMessage == null ? null : rpcMessage.getRequestId();
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            for (Channel channel : channels) {
+                channel.close().sync();
+            }
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private static RpcMessage response(long requestId) {
+        return RpcMessage.builder().requestId(requestId).build();
+    }
+}
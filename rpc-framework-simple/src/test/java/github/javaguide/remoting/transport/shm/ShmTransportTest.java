@@ -0,0 +1,157 @@
+package github.javaguide.remoting.transport.shm;
+
+import github.javaguide.DemoRpcService;
+import github.javaguide.DemoRpcServiceImpl;
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.exception.RpcException;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShmTransportTest {
+
+    @Test
+    void framesWrapAroundTheRing() throws IOException {
+        Path path = Files.createTempFile("rpc-shm", ".ring");
+        try {
+            ShmFile server = ShmFile.create(path, 64);
+            // 另一个映射模拟对端进程
+            ShmFile client = ShmFile.open(path);
+            assertEquals(64, client.requestRing().capacity());
+            for (int i = 0; i < 20; i++) {
+                byte[] frame = new byte[13 + i % 5];
+                frame[0] = (byte) i;
+                frame[frame.length - 1] = (byte) -i;
+                assertTrue(client.requestRing().offer(frame));
+                assertArrayEquals(frame, server.requestRing().poll());
+            }
+            assertNull(server.requestRing().poll());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void offerFailsWhenRingIsFull() throws IOException {
+        Path path = Files.createTempFile("rpc-shm", ".ring");
+        try {
+            ShmRing ring = ShmFile.create(path, 64).responseRing();
+            // 每条record 4B长度 + 28B数据 = 32B
+            assertTrue(ring.offer(new byte[28]));
+            assertTrue(ring.offer(new byte[28]));
+            assertFalse(ring.offer(new byte[1]));
+            ring.poll();
+            assertTrue(ring.offer(new byte[28]));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void ringCapacityIsClampedToSupportedRange() throws IOException {
+        Path path = Files.createTempFile("rpc-shm", ".ring");
+        try {
+            ShmRing ring = ShmFile.create(path, 1).requestRing();
+            assertEquals(ShmRing.MIN_CAPACITY, ring.capacity());
+            assertTrue(ring.offer(new byte[4]));
+            assertArrayEquals(new byte[4], ring.poll());
+            assertThrows(IllegalArgumentException.class, () -> ShmFile.create(path, ShmRing.MAX_CAPACITY + 1));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void forgedFrameLengthIsRejectedBeforeAllocating() throws IOException {
+        Path path = Files.createTempFile("rpc-shm", ".ring");
+        try {
+            ShmRing ring = ShmFile.create(path, 64).requestRing();
+            assertTrue(ring.offer(new byte[8]));
+            // 对端把record长度改为一个很大的值
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                buffer.order(ByteOrder.nativeOrder()).putInt(ShmRing.HEADER_SIZE, Integer.MAX_VALUE);
+            }
+            assertThrows(IllegalStateException.class, ring::poll);
+            // 已写入的数据被丢弃，之后的帧可以正常读写
+            assertNull(ring.poll());
+            byte[] frame = {1, 2, 3};
+            assertTrue(ring.offer(frame));
+            assertArrayEquals(frame, ring.poll());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void oversizedRequestFailsImmediately() throws Exception {
+        Path path = Files.createTempFile("rpc-shm", ".ring");
+        ShmRpcServer server = new ShmRpcServer(path.toString(), 1024);
+        ShmRpcClient client = new ShmRpcClient(path.toString());
+        try {
+            RpcRequest rpcRequest = RpcRequest.builder()
+                    .interfaceName(DemoRpcService.class.getCanonicalName())
+                    .methodName("hello")
+                    .parameters(new Object[]{new byte[4096]})
+                    .paramTypes(new Class<?>[]{byte[].class})
+                    .group("test1")
+                    .version("version1").build();
+            CompletableFuture<RpcResponse<Object>> future = client.sendRpcRequest(rpcRequest, 60_000);
+            assertTrue(future.isCompletedExceptionally());
+            ExecutionException e = assertThrows(ExecutionException.class, future::get);
+            assertTrue(e.getCause() instanceof RpcException);
+        } finally {
+            client.close();
+            server.close();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void requestRoundTrip() throws Exception {
+        Path path = Files.createTempFile("rpc-shm", ".ring");
+        ZkServiceProviderImpl serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+        serviceProvider.addService(RpcServiceConfig.builder()
+                .group("test1").version("version1").service(new DemoRpcServiceImpl()).build());
+        ShmRpcServer server = new ShmRpcServer(path.toString(), 1024);
+        server.start();
+        ShmRpcClient client = new ShmRpcClient(path.toString());
+        try {
+            RpcRequest rpcRequest = RpcRequest.builder()
+                    .interfaceName(DemoRpcService.class.getCanonicalName())
+                    .methodName("hello")
+                    .parameters(new Object[0])
+                    .paramTypes(new Class<?>[0])
+                    .group("test1")
+                    .version("version1").build();
+            for (int i = 0; i < 100; i++) {
+                RpcResponse<Object> rpcResponse = client.sendRpcRequest(rpcRequest, 1000).get(1, TimeUnit.SECONDS);
+                assertEquals("hello", rpcResponse.getData());
+            }
+        } finally {
+            client.close();
+            server.close();
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package github.javaguide.serialize.kyro;
 
 import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.junit.jupiter.api.Test;
 
-import java.util.UUID;
-
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class KryoSerializerTest {
@@ -15,7 +17,6 @@ class KryoSerializerTest {
                 .parameters(new Object[]{"sayhelooloo", "sayhelooloosayhelooloo"})
                 .interfaceName("github.javaguide.HelloService")
                 .paramTypes(new Class<?>[]{String.class, String.class})
-                .requestId(UUID.randomUUID().toString())
                 .group("group1")
                 .version("version1")
                 .build();
@@ -24,6 +25,25 @@ class KryoSerializerTest {
         RpcRequest actual = kryoSerializer.deserialize(bytes, RpcRequest.class);
         assertEquals(target.getGroup(), actual.getGroup());
         assertEquals(target.getVersion(), actual.getVersion());
-        assertEquals(target.getRequestId(), actual.getRequestId());
+        assertEquals(target.getInterfaceName(), actual.getInterfaceName());
+    }
+
+    @Test
+    void kryoSerializerByteBufTest() {
+        KryoSerializer kryoSerializer = new KryoSerializer();
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            // 同一线程反复复用 Kryo 与缓冲区
+            for (int i = 0; i < 3; i++) {
+                RpcResponse<Object> target = RpcResponse.success(new Object[]{"hello" + i, i});
+                kryoSerializer.serialize(target, buf);
+                RpcResponse<?> actual = kryoSerializer.deserialize(buf, RpcResponse.class);
+                assertArrayEquals((Object[]) target.getData(), (Object[]) actual.getData());
+                assertEquals(0, buf.readableBytes());
+                buf.clear();
+            }
+        } finally {
+            buf.release();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package github.javaguide.serialize.protostuff;
+
+import github.javaguide.remoting.dto.RpcRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProtostuffSerializerTest {
+
+    @Test
+    void concurrentSerializeTest() throws Exception {
+        ProtostuffSerializer protostuffSerializer = new ProtostuffSerializer();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String group = "group" + t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        RpcRequest target = RpcRequest.builder().methodName("hello" + i)
+                                .interfaceName("github.javaguide.HelloService")
+                                .group(group)
+                                .version("version1")
+                                .build();
+                        RpcRequest actual = protostuffSerializer.deserialize(protostuffSerializer.serialize(target), RpcRequest.class);
+                        assertEquals(target.getMethodName(), actual.getMethodName());
+                        assertEquals(target.getGroup(), actual.getGroup());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}